@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+
+/**
+ * Benchmarks the construction of a provider and the generation of its marker values, over a synthetic form response held in memory
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class FormsProviderBenchmark
+{
+    private static final int ID_FORM = 1;
+    private static final int ID_FORM_RESPONSE = 1;
+    private static final FormsUrlContext URL_CONTEXT = new FormsUrlContext( "http://localhost/lutece/", "http://localhost/lutece/jsp/site/Portal.jsp" );
+
+    // The parameters are public and named as on the JMH command line, for instance -p iterationCount=50
+    @Param( {
+            "10", "100"
+    } )
+    public int textQuestionCount;
+
+    @Param( {
+            "0", "5"
+    } )
+    public int fileQuestionCount;
+
+    @Param( {
+            "1", "10"
+    } )
+    public int iterationCount;
+
+    @Param( {
+            "2"
+    } )
+    public int filesPerQuestion;
+
+    private InMemoryProviderDataSource _dataSource;
+    private FormsProvider _provider;
+
+    /**
+     * Initializes Lutece and generates the form response
+     *
+     * @throws Exception
+     *             if the initialization fails
+     */
+    @Setup
+    public void setUp( ) throws Exception
+    {
+        LuteceBenchmarkContext.init( );
+
+        _dataSource = new InMemoryProviderDataSource( );
+        List<Question> listQuestions = SyntheticForms.createForm( _dataSource, ID_FORM, textQuestionCount, fileQuestionCount );
+        SyntheticForms.createFormResponse( _dataSource, ID_FORM_RESPONSE, ID_FORM, listQuestions, iterationCount, filesPerQuestion );
+        ProviderDataSourceService.setDataSource( _dataSource );
+
+        _provider = createProvider( );
+    }
+
+    /**
+     * Restores the data source
+     */
+    @TearDown
+    public void tearDown( )
+    {
+        ProviderDataSourceService.setDataSource( null );
+    }
+
+    /**
+     * Construction of a provider, as done for each notification
+     *
+     * @return the provider
+     */
+    @Benchmark
+    public FormsProvider constructProvider( )
+    {
+        return createProvider( );
+    }
+
+    /**
+     * Generation of the marker values of a provider already built
+     *
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    public void provideMarkerValues( Blackhole blackhole )
+    {
+        consumeMarkerValues( _provider, blackhole );
+    }
+
+    /**
+     * Construction of a provider followed by the generation of its marker values, which is the cost of a notification
+     *
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    public void constructProviderAndProvideMarkerValues( Blackhole blackhole )
+    {
+        consumeMarkerValues( createProvider( ), blackhole );
+    }
+
+    /**
+     * Creates a provider of the form response
+     *
+     * @return the provider
+     */
+    private FormsProvider createProvider( )
+    {
+        return new FormsProvider( String.valueOf( ID_FORM ), new FormResponseSnapshot( ID_FORM_RESPONSE, _dataSource ),
+                FormsProvider.getMapping( SyntheticForms.PROVIDER_MANAGER_ID, ID_FORM ), URL_CONTEXT );
+    }
+
+    /**
+     * Generates the marker values of a provider. The values of the lazy markers are computed too.
+     *
+     * @param provider
+     *            the provider
+     * @param blackhole
+     *            the blackhole
+     */
+    private static void consumeMarkerValues( FormsProvider provider, Blackhole blackhole )
+    {
+        for ( InfoMarker marker : provider.provideMarkerValues( ) )
+        {
+            blackhole.consume( marker.getValue( ) );
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+
+/**
+ * Benchmarks the aggregation of the values of an iterable group into multi-valued markers. The group has text questions and a file question, each
+ * answered in every iteration.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class IterableGroupBenchmark
+{
+    private static final int ID_FORM = 1;
+    private static final int ID_FORM_RESPONSE = 1;
+    private static final int TEXT_QUESTION_COUNT = 5;
+    private static final int FILE_QUESTION_COUNT = 1;
+    private static final int FILES_PER_QUESTION = 1;
+    private static final FormsUrlContext URL_CONTEXT = new FormsUrlContext( "http://localhost/lutece/", "http://localhost/lutece/jsp/site/Portal.jsp" );
+
+    // The parameters are public and named as on the JMH command line, for instance -p iterationCount=50
+    @Param( {
+            "1", "50", "500"
+    } )
+    public int iterationCount;
+
+    private InMemoryProviderDataSource _dataSource;
+
+    /**
+     * Initializes Lutece and generates the form response
+     *
+     * @throws Exception
+     *             if the initialization fails
+     */
+    @Setup
+    public void setUp( ) throws Exception
+    {
+        LuteceBenchmarkContext.init( );
+
+        _dataSource = new InMemoryProviderDataSource( );
+        List<Question> listQuestions = SyntheticForms.createForm( _dataSource, ID_FORM, TEXT_QUESTION_COUNT, FILE_QUESTION_COUNT );
+        SyntheticForms.createFormResponse( _dataSource, ID_FORM_RESPONSE, ID_FORM, listQuestions, iterationCount, FILES_PER_QUESTION );
+        ProviderDataSourceService.setDataSource( _dataSource );
+    }
+
+    /**
+     * Restores the data source
+     */
+    @TearDown
+    public void tearDown( )
+    {
+        ProviderDataSourceService.setDataSource( null );
+    }
+
+    /**
+     * Generation of the marker values by a new provider, so that no aggregated value is reused
+     *
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    public void aggregateIterations( Blackhole blackhole )
+    {
+        FormsProvider provider = new FormsProvider( String.valueOf( ID_FORM ), new FormResponseSnapshot( ID_FORM_RESPONSE, _dataSource ),
+                FormsProvider.getMapping( SyntheticForms.PROVIDER_MANAGER_ID, ID_FORM ), URL_CONTEXT );
+
+        for ( InfoMarker marker : provider.provideMarkerValues( ) )
+        {
+            blackhole.consume( marker.getValue( ) );
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.FormQuestionSummary;
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+
+/**
+ * Benchmarks the merge of the questions of the forms of a workflow into the marker descriptions of the "all forms" provider, sequentially and in a
+ * fork-join pool. The questions are held in memory: half of the codes of a form are shared by all the forms, the other half are specific to the
+ * form.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MarkerDescriptionBenchmark
+{
+    private static final String CODE_SHARED = "shared_";
+    private static final String CODE_SPECIFIC = "form_";
+
+    // The parameters are public and named as on the JMH command line, for instance -p formCount=1000
+    @Param( {
+            "10", "100", "1000"
+    } )
+    public int formCount;
+
+    @Param( {
+            "50"
+    } )
+    public int questionsPerForm;
+
+    @Param( {
+            "4"
+    } )
+    public int parallelism;
+
+    private List<List<FormQuestionSummary>> _listQuestionsByFormIndex;
+    private ForkJoinPool _forkJoinPool;
+
+    /**
+     * Initializes Lutece and generates the questions of the forms
+     *
+     * @throws Exception
+     *             if the initialization fails
+     */
+    @Setup
+    public void setUp( ) throws Exception
+    {
+        LuteceBenchmarkContext.init( );
+
+        _listQuestionsByFormIndex = new ArrayList<>( formCount );
+
+        for ( int nIdForm = 1; nIdForm <= formCount; nIdForm++ )
+        {
+            List<FormQuestionSummary> listQuestions = new ArrayList<>( questionsPerForm );
+
+            for ( int i = 0; i < questionsPerForm; i++ )
+            {
+                FormQuestionSummary question = new FormQuestionSummary( );
+                question.setIdForm( nIdForm );
+                question.setIdQuestion( nIdForm * questionsPerForm + i );
+                question.setCode( ( i % 2 == 0 ) ? CODE_SHARED + i : CODE_SPECIFIC + nIdForm + "_" + i );
+                question.setColumnTitle( "Question " + i );
+                listQuestions.add( question );
+            }
+
+            _listQuestionsByFormIndex.add( listQuestions );
+        }
+
+        _forkJoinPool = new ForkJoinPool( parallelism );
+    }
+
+    /**
+     * Shuts the fork-join pool down
+     */
+    @TearDown
+    public void tearDown( )
+    {
+        _forkJoinPool.shutdown( );
+    }
+
+    /**
+     * Sequential merge
+     *
+     * @return the marker descriptions
+     */
+    @Benchmark
+    public List<InfoMarker> mergeQuestions( )
+    {
+        return MarkerDescriptionBuilder.mergeQuestions( _listQuestionsByFormIndex );
+    }
+
+    /**
+     * Parallel merge, as done from the threshold {@code notifygru-forms.markers.parallelThreshold}
+     *
+     * @return the marker descriptions
+     */
+    @Benchmark
+    public List<InfoMarker> mergeQuestionsInParallel( )
+    {
+        return MarkerDescriptionBuilder.mergeQuestionsInParallel( _listQuestionsByFormIndex, _forkJoinPool );
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.IMarkerSnapshotStore;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.InMemoryMarkerSnapshotStore;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.MarkerPlanCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.MarkerSnapshotService;
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+
+/**
+ * Benchmarks the marker snapshots: the cost of a notification without snapshots, with a snapshot whose values are all reused, and with snapshots
+ * which never match (every question response changed between two notifications), and the cost of the content hash alone
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MarkerSnapshotBenchmark
+{
+    private static final int ID_FORM = 1;
+    private static final int ID_FORM_RESPONSE = 1;
+    private static final FormsUrlContext URL_CONTEXT = new FormsUrlContext( "http://localhost/lutece/", "http://localhost/lutece/jsp/site/Portal.jsp" );
+    private static final String MODE_DISABLED = "disabled";
+    private static final String MODE_REUSED = "reused";
+    private static final String MODE_MISSED = "missed";
+
+    // The parameters are public and named as on the JMH command line, for instance -p snapshots=reused
+    @Param( {
+            MODE_DISABLED, MODE_REUSED, MODE_MISSED
+    } )
+    public String snapshots;
+
+    @Param( {
+            "10", "100"
+    } )
+    public int textQuestionCount;
+
+    @Param( {
+            "0", "5"
+    } )
+    public int fileQuestionCount;
+
+    @Param( {
+            "1", "10"
+    } )
+    public int iterationCount;
+
+    private InMemoryProviderDataSource _dataSource;
+    private List<FormQuestionResponse> _listFormQuestionResponse;
+    private List<QuestionMarker> _listQuestionMarkers;
+
+    /**
+     * Initializes Lutece, generates the form response and sets up the snapshots of the mode
+     *
+     * @throws Exception
+     *             if the initialization fails
+     */
+    @Setup
+    public void setUp( ) throws Exception
+    {
+        LuteceBenchmarkContext.init( );
+
+        _dataSource = new InMemoryProviderDataSource( );
+        List<Question> listQuestions = SyntheticForms.createForm( _dataSource, ID_FORM, textQuestionCount, fileQuestionCount );
+        SyntheticForms.createFormResponse( _dataSource, ID_FORM_RESPONSE, ID_FORM, listQuestions, iterationCount, 2 );
+        ProviderDataSourceService.setDataSource( _dataSource );
+
+        MarkerSnapshotService.setEnabled( !MODE_DISABLED.equals( snapshots ) );
+        MarkerSnapshotService.setStore( MODE_MISSED.equals( snapshots ) ? new DiscardingMarkerSnapshotStore( ) : new InMemoryMarkerSnapshotStore( ) );
+
+        // The question responses and their compiled markers, for the hash alone
+        _listFormQuestionResponse = _dataSource.findFormQuestionResponses( ID_FORM_RESPONSE );
+        MarkerPlan plan = MarkerPlanCacheService.getInstance( ).getMarkerPlan( String.valueOf( ID_FORM ), ID_FORM );
+        _listQuestionMarkers = new ArrayList<>( );
+
+        for ( FormQuestionResponse formQuestionResponse : _listFormQuestionResponse )
+        {
+            _listQuestionMarkers.add( plan.getQuestionMarker( formQuestionResponse.getQuestion( ) ) );
+        }
+
+        // The first notification records the snapshot reused by the next ones
+        for ( InfoMarker marker : createProvider( ).provideMarkerValues( ) )
+        {
+            marker.getValue( );
+        }
+    }
+
+    /**
+     * Restores the data source and the snapshots
+     */
+    @TearDown
+    public void tearDown( )
+    {
+        ProviderDataSourceService.setDataSource( null );
+        MarkerSnapshotService.setEnabled( null );
+        MarkerSnapshotService.setStore( null );
+    }
+
+    /**
+     * Construction of a provider followed by the generation of its marker values, which is the cost of a notification
+     *
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    public void constructProviderAndProvideMarkerValues( Blackhole blackhole )
+    {
+        for ( InfoMarker marker : createProvider( ).provideMarkerValues( ) )
+        {
+            blackhole.consume( marker.getValue( ) );
+        }
+    }
+
+    /**
+     * Content hash of all the question responses of the form response, as computed on each notification when the snapshots are enabled
+     *
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    public void hashQuestionResponses( Blackhole blackhole )
+    {
+        for ( int i = 0; i < _listFormQuestionResponse.size( ); i++ )
+        {
+            blackhole.consume( MarkerSnapshot.hash( _listFormQuestionResponse.get( i ), _listQuestionMarkers.get( i ) ) );
+        }
+    }
+
+    /**
+     * Creates a provider of the form response
+     *
+     * @return the provider
+     */
+    private FormsProvider createProvider( )
+    {
+        return new FormsProvider( String.valueOf( ID_FORM ), new FormResponseSnapshot( ID_FORM_RESPONSE, _dataSource ),
+                FormsProvider.getMapping( SyntheticForms.PROVIDER_MANAGER_ID, ID_FORM ), URL_CONTEXT );
+    }
+
+    /**
+     * Store which never keeps the snapshots, so that the values are hashed and recorded but never reused
+     */
+    private static final class DiscardingMarkerSnapshotStore implements IMarkerSnapshotStore
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public MarkerSnapshot get( int nIdFormResponse )
+        {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void put( int nIdFormResponse, MarkerSnapshot snapshot )
+        {
+            // The snapshot is discarded
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clear( )
+        {
+            // Nothing is kept
+        }
+    }
+}
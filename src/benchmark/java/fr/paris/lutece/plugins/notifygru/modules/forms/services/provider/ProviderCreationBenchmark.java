@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
+import fr.paris.lutece.plugins.workflowcore.service.provider.IProvider;
+
+/**
+ * Benchmarks the creation of the providers of a mass workflow action, one by one with createProvider and at once with createProviders. As the data
+ * are held in memory, the time mostly measures the work done in the JVM: the queries saved are reported by the queries counter, which counts the
+ * calls to the data source.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ProviderCreationBenchmark
+{
+    private static final int ID_FORM = 1;
+    private static final int TEXT_QUESTION_COUNT = 20;
+    private static final int ITERATION_COUNT = 1;
+    private static final FormsUrlContext URL_CONTEXT = new FormsUrlContext( "http://localhost/lutece/", "http://localhost/lutece/jsp/site/Portal.jsp" );
+
+    // The parameters are public and named as on the JMH command line, for instance -p formResponseCount=5000
+    @Param( {
+            "100", "5000"
+    } )
+    public int formResponseCount;
+
+    private InMemoryProviderDataSource _dataSource;
+    private FormsProviderManager _providerManager;
+    private String _strProviderId;
+    private List<ResourceHistory> _listResourceHistory;
+
+    /**
+     * Counter of the calls to the data source, each one standing for a query
+     */
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.EVENTS )
+    public static class Queries
+    {
+        public long queries;
+    }
+
+    /**
+     * Initializes Lutece and generates the form responses
+     *
+     * @throws Exception
+     *             if the initialization fails
+     */
+    @Setup
+    public void setUp( ) throws Exception
+    {
+        LuteceBenchmarkContext.init( );
+
+        _dataSource = new InMemoryProviderDataSource( );
+        List<Question> listQuestions = SyntheticForms.createForm( _dataSource, ID_FORM, TEXT_QUESTION_COUNT, 0 );
+        _listResourceHistory = new ArrayList<>( formResponseCount );
+
+        for ( int nIdFormResponse = 1; nIdFormResponse <= formResponseCount; nIdFormResponse++ )
+        {
+            SyntheticForms.createFormResponse( _dataSource, nIdFormResponse, ID_FORM, listQuestions, ITERATION_COUNT, 0 );
+
+            ResourceHistory resourceHistory = new ResourceHistory( );
+            resourceHistory.setIdResource( nIdFormResponse );
+            _listResourceHistory.add( resourceHistory );
+        }
+
+        ProviderDataSourceService.setDataSource( _dataSource );
+        _providerManager = new FormsProviderManager( SyntheticForms.PROVIDER_MANAGER_ID );
+        _strProviderId = String.valueOf( ID_FORM );
+    }
+
+    /**
+     * Restores the data source
+     */
+    @TearDown
+    public void tearDown( )
+    {
+        ProviderDataSourceService.setDataSource( null );
+    }
+
+    /**
+     * One call to createProvider per resource history
+     *
+     * @param queries
+     *            the counter of the queries
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    public void createProviderPerItem( Queries queries, Blackhole blackhole )
+    {
+        _dataSource.resetCallCounts( );
+
+        for ( ResourceHistory resourceHistory : _listResourceHistory )
+        {
+            blackhole.consume( _providerManager.createProvider( _strProviderId, resourceHistory, URL_CONTEXT ) );
+        }
+
+        queries.queries += getCallCount( );
+    }
+
+    /**
+     * One call to createProviders for all the resource histories
+     *
+     * @param queries
+     *            the counter of the queries
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    public void createProvidersInBatch( Queries queries, Blackhole blackhole )
+    {
+        _dataSource.resetCallCounts( );
+
+        List<IProvider> listProviders = _providerManager.createProviders( _strProviderId, _listResourceHistory, URL_CONTEXT );
+        blackhole.consume( listProviders );
+
+        queries.queries += getCallCount( );
+    }
+
+    /**
+     * Gives the number of calls to the data source since the last reset
+     *
+     * @return the number of calls
+     */
+    private long getCallCount( )
+    {
+        return (long) _dataSource.getFormResponseCallCount( ) + _dataSource.getFormResponsesCallCount( ) + _dataSource.getFormQuestionResponseCallCount( )
+                + _dataSource.getFormQuestionResponsesCallCount( ) + _dataSource.getFileMetadataCallCount( ) + _dataSource.getQuestionCallCount( ) + _dataSource.getMappingCallCount( );
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.paris.lutece.plugins.forms.util.FormsConstants;
+import fr.paris.lutece.util.url.UrlItem;
+
+/**
+ * Benchmarks the rendering of the front office URL of 10,000 form responses, with a {@link UrlItem} built for each URL as before, and with a cached
+ * {@link UrlTemplate}. The allocations per URL are given by gc.alloc.rate.norm.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class UrlTemplateBenchmark
+{
+    private static final int RENDER_COUNT = 10000;
+    private static final String PROD_PORTAL_URL = "http://localhost/lutece/jsp/site/Portal.jsp";
+
+    private final UrlTemplate.Cache _templates = new UrlTemplate.Cache( strProdPortalUrl -> {
+        UrlItem url = new UrlItem( strProdPortalUrl );
+        url.addParameter( FormsConstants.PARAMETER_PAGE, FormsProvider.PARAMETER_PAGE_FORM_RESPONSE );
+        url.addParameter( FormsConstants.PARAMETER_TARGET_VIEW, FormsProvider.PARAMETER_VIEW_FORM_RESPONSE_DETAILS_FO );
+
+        return UrlTemplate.compile( url, FormsProvider.PARAMETER_ID_FORM_RESPONSES_FO );
+    } );
+
+    /**
+     * A new {@link UrlItem} for each URL
+     *
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation( RENDER_COUNT )
+    public void renderWithUrlItem( Blackhole blackhole )
+    {
+        for ( int nIdFormResponse = 1; nIdFormResponse <= RENDER_COUNT; nIdFormResponse++ )
+        {
+            UrlItem url = new UrlItem( PROD_PORTAL_URL );
+            url.addParameter( FormsConstants.PARAMETER_PAGE, FormsProvider.PARAMETER_PAGE_FORM_RESPONSE );
+            url.addParameter( FormsConstants.PARAMETER_TARGET_VIEW, FormsProvider.PARAMETER_VIEW_FORM_RESPONSE_DETAILS_FO );
+            url.addParameter( FormsProvider.PARAMETER_ID_FORM_RESPONSES_FO, nIdFormResponse );
+            blackhole.consume( url.getUrl( ) );
+        }
+    }
+
+    /**
+     * The template of the base URL, taken from the cache for each URL as the provider does
+     *
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation( RENDER_COUNT )
+    public void renderWithTemplate( Blackhole blackhole )
+    {
+        for ( int nIdFormResponse = 1; nIdFormResponse <= RENDER_COUNT; nIdFormResponse++ )
+        {
+            blackhole.consume( _templates.get( PROD_PORTAL_URL ).render( nIdFormResponse ) );
+        }
+    }
+}
@@ -33,6 +33,10 @@
  */
 package fr.paris.lutece.plugins.notifygru.modules.forms;
 
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.NotifyGruFormsShutdownService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.ProviderCacheWarmUpService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.metrics.NotifyGruFormsMetrics;
+import fr.paris.lutece.portal.service.init.ShutdownServiceManager;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -46,6 +50,17 @@ public class NotifyGruFormsPlugin extends PluginDefaultImplementation
 {
     public static final String PLUGIN_NAME = "notifygru-forms";
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void init( )
+    {
+        NotifyGruFormsMetrics.getInstance( ).register( );
+        ProviderCacheWarmUpService.start( );
+        ShutdownServiceManager.registerShutdownService( new NotifyGruFormsShutdownService( ) );
+    }
+
     /**
      * Get the plugin
      * 
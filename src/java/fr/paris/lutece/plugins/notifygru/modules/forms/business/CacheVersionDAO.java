@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for CacheVersion objects
+ */
+public final class CacheVersionDAO implements ICacheVersionDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_VERSION = "SELECT version FROM notifygru_forms_cache_version WHERE resource_type = ? AND resource_key = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notifygru_forms_cache_version ( resource_type, resource_key, version ) VALUES ( ?, ?, 1 )";
+    private static final String SQL_QUERY_INCREMENT = "UPDATE notifygru_forms_cache_version SET version = version + 1 WHERE resource_type = ? AND resource_key = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT resource_type, resource_key, version FROM notifygru_forms_cache_version";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void increment( String strResourceType, String strResourceKey, Plugin plugin )
+    {
+        if ( exists( strResourceType, strResourceKey, plugin ) )
+        {
+            update( strResourceType, strResourceKey, plugin );
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            daoUtil.setString( 1, strResourceType );
+            daoUtil.setString( 2, strResourceKey );
+            daoUtil.executeUpdate( );
+        }
+        catch( AppException e )
+        {
+            // The version has been created by another node in the meantime
+            update( strResourceType, strResourceKey, plugin );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<CacheVersion> selectAll( Plugin plugin )
+    {
+        List<CacheVersion> listVersions = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                CacheVersion version = new CacheVersion( );
+                version.setResourceType( daoUtil.getString( 1 ) );
+                version.setResourceKey( daoUtil.getString( 2 ) );
+                version.setVersion( daoUtil.getInt( 3 ) );
+                listVersions.add( version );
+            }
+        }
+
+        return listVersions;
+    }
+
+    /**
+     * Tests if the version of the specified resource exists
+     *
+     * @param strResourceType
+     *            the resource type
+     * @param strResourceKey
+     *            the resource key
+     * @param plugin
+     *            the plugin
+     * @return {@code true} if the version exists, {@code false} otherwise
+     */
+    private boolean exists( String strResourceType, String strResourceKey, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_VERSION, plugin ) )
+        {
+            daoUtil.setString( 1, strResourceType );
+            daoUtil.setString( 2, strResourceKey );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( );
+        }
+    }
+
+    /**
+     * Increments an existing version
+     *
+     * @param strResourceType
+     *            the resource type
+     * @param strResourceKey
+     *            the resource key
+     * @param plugin
+     *            the plugin
+     */
+    private void update( String strResourceType, String strResourceKey, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT, plugin ) )
+        {
+            daoUtil.setString( 1, strResourceType );
+            daoUtil.setString( 2, strResourceKey );
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides read access to the metadata of the core files. The physical files are never loaded.
+ */
+public final class FileMetadataDAO implements IFileMetadataDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_METADATA = "SELECT id_file, title, origin FROM core_file WHERE id_file IN ( ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, File> selectFileMetadata( Collection<Integer> collectionIdFile )
+    {
+        if ( collectionIdFile.isEmpty( ) )
+        {
+            return Collections.emptyMap( );
+        }
+
+        Map<Integer, File> mapFiles = new HashMap<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( FormResponseLookupDAO.buildInQuery( SQL_QUERY_SELECT_METADATA, collectionIdFile.size( ) ) ) )
+        {
+            int nIndex = 1;
+
+            for ( Integer nIdFile : collectionIdFile )
+            {
+                daoUtil.setInt( nIndex++, nIdFile );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                File file = new File( );
+                file.setIdFile( daoUtil.getInt( 1 ) );
+                file.setTitle( daoUtil.getString( 2 ) );
+                file.setOrigin( daoUtil.getString( 3 ) );
+                file.setFileKey( String.valueOf( file.getIdFile( ) ) );
+                mapFiles.put( file.getIdFile( ), file );
+            }
+        }
+
+        return mapFiles;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the metadata of the core files
+ */
+public final class FileMetadataHome
+{
+    // Static variable pointed at the DAO instance
+    private static IFileMetadataDAO _dao = SpringContextService.getBean( "notifygru-forms.fileMetadataDAO" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private FileMetadataHome( )
+    {
+    }
+
+    /**
+     * Load the metadata of the specified files, without their content
+     *
+     * @param collectionIdFile
+     *            the ids of the files
+     * @return the files, keyed by file id. Only the id, the title, the origin and the key of the files are filled
+     */
+    public static Map<Integer, File> findByPrimaryKeys( Collection<Integer> collectionIdFile )
+    {
+        Map<Integer, File> mapFiles = new HashMap<>( );
+
+        for ( List<Integer> listChunk : FormResponseLookupHome.getChunks( collectionIdFile ) )
+        {
+            mapFiles.putAll( _dao.selectFileMetadata( listChunk ) );
+        }
+
+        return mapFiles;
+    }
+}
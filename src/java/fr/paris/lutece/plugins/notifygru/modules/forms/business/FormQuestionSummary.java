@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.io.Serializable;
+
+/**
+ * This class represents the summary of a question of a form, used to describe the markers of the providers
+ */
+public class FormQuestionSummary implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private int _nIdQuestion;
+    private int _nIdForm;
+    private String _strCode;
+    private String _strTitle;
+    private String _strColumnTitle;
+
+    /**
+     * Gives the question id
+     *
+     * @return the question id
+     */
+    public int getIdQuestion( )
+    {
+        return _nIdQuestion;
+    }
+
+    /**
+     * Sets the question id
+     *
+     * @param nIdQuestion
+     *            the question id
+     */
+    public void setIdQuestion( int nIdQuestion )
+    {
+        _nIdQuestion = nIdQuestion;
+    }
+
+    /**
+     * Gives the form id
+     *
+     * @return the form id
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Sets the form id
+     *
+     * @param nIdForm
+     *            the form id
+     */
+    public void setIdForm( int nIdForm )
+    {
+        _nIdForm = nIdForm;
+    }
+
+    /**
+     * Gives the question code
+     *
+     * @return the question code
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * Sets the question code
+     *
+     * @param strCode
+     *            the question code
+     */
+    public void setCode( String strCode )
+    {
+        _strCode = strCode;
+    }
+
+    /**
+     * Gives the question title
+     *
+     * @return the question title
+     */
+    public String getTitle( )
+    {
+        return _strTitle;
+    }
+
+    /**
+     * Sets the question title
+     *
+     * @param strTitle
+     *            the question title
+     */
+    public void setTitle( String strTitle )
+    {
+        _strTitle = strTitle;
+    }
+
+    /**
+     * Gives the column title of the question
+     *
+     * @return the column title
+     */
+    public String getColumnTitle( )
+    {
+        return _strColumnTitle;
+    }
+
+    /**
+     * Sets the column title of the question
+     *
+     * @param strColumnTitle
+     *            the column title
+     */
+    public void setColumnTitle( String strColumnTitle )
+    {
+        _strColumnTitle = strColumnTitle;
+    }
+}
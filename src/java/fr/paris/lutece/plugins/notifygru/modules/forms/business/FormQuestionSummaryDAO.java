@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides read access to the summaries of the questions of the forms
+ */
+public final class FormQuestionSummaryDAO implements IFormQuestionSummaryDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_BY_FORMS = "SELECT q.id_question, s.id_form, q.code, q.title, q.column_title FROM forms_question q INNER JOIN forms_step s ON q.id_step = s.id_step WHERE s.id_form IN ( ";
+    private static final String SQL_ORDER_BY = " ORDER BY s.id_form, q.id_question";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormQuestionSummary> selectByForms( Collection<Integer> collectionIdForm, Plugin plugin )
+    {
+        List<FormQuestionSummary> listQuestions = new ArrayList<>( );
+
+        if ( collectionIdForm.isEmpty( ) )
+        {
+            return listQuestions;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( FormResponseLookupDAO.buildInQuery( SQL_QUERY_SELECT_BY_FORMS, collectionIdForm.size( ) ) + SQL_ORDER_BY, plugin ) )
+        {
+            int nIndex = 1;
+
+            for ( Integer nIdForm : collectionIdForm )
+            {
+                daoUtil.setInt( nIndex++, nIdForm );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                nIndex = 1;
+
+                FormQuestionSummary question = new FormQuestionSummary( );
+                question.setIdQuestion( daoUtil.getInt( nIndex++ ) );
+                question.setIdForm( daoUtil.getInt( nIndex++ ) );
+                question.setCode( daoUtil.getString( nIndex++ ) );
+                question.setTitle( daoUtil.getString( nIndex++ ) );
+                question.setColumnTitle( daoUtil.getString( nIndex ) );
+                listQuestions.add( question );
+            }
+        }
+
+        return listQuestions;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.forms.service.FormsPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the summaries of the questions of the forms
+ */
+public final class FormQuestionSummaryHome
+{
+    // Static variable pointed at the DAO instance
+    private static IFormQuestionSummaryDAO _dao = SpringContextService.getBean( "notifygru-forms.formQuestionSummaryDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( FormsPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private FormQuestionSummaryHome( )
+    {
+    }
+
+    /**
+     * Load the summaries of the questions of the specified forms. The forms are queried by chunks to keep the IN clauses bounded.
+     *
+     * @param collectionIdForm
+     *            the ids of the forms
+     * @return the summaries of the questions ordered by question id, keyed by form id
+     */
+    public static Map<Integer, List<FormQuestionSummary>> findByForms( Collection<Integer> collectionIdForm )
+    {
+        Map<Integer, List<FormQuestionSummary>> mapQuestionsByForm = new HashMap<>( );
+
+        for ( List<Integer> listChunk : FormResponseLookupHome.getChunks( collectionIdForm ) )
+        {
+            for ( FormQuestionSummary question : _dao.selectByForms( listChunk, _plugin ) )
+            {
+                mapQuestionsByForm.computeIfAbsent( question.getIdForm( ), nIdForm -> new ArrayList<>( ) ).add( question );
+            }
+        }
+
+        return mapQuestionsByForm;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.Field;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides set-based read access to the form responses
+ */
+public final class FormResponseLookupDAO implements IFormResponseLookupDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_FORM_RESPONSES = "SELECT id_response, id_form, guid, creation_date, update_date, from_save, admin, status, update_date_status FROM forms_response WHERE id_response IN ( ";
+    private static final String SQL_SELECT_QUESTION_RESPONSE_COLUMNS = "SELECT qr.id_question_response, qr.id_form_response, qr.id_question, qr.id_step, qr.iteration_number,"
+            + " r.id_response, r.id_entry, r.response_value, r.iteration_number, r.status, r.sort_order, r.id_file, f.id_field, f.title, f.code, f.value";
+    private static final String SQL_JOIN_ENTRY_RESPONSES = " LEFT JOIN forms_question_entry_response qer ON qer.id_question_response = qr.id_question_response"
+            + " LEFT JOIN genatt_response r ON r.id_response = qer.id_entry_response LEFT JOIN genatt_field f ON f.id_field = r.id_field";
+    private static final String SQL_QUERY_SELECT_FORM_QUESTION_RESPONSES = SQL_SELECT_QUESTION_RESPONSE_COLUMNS + " FROM forms_question_response qr"
+            + SQL_JOIN_ENTRY_RESPONSES + " WHERE qr.id_form_response IN ( ";
+    private static final String SQL_QUERY_SELECT_FORM_QUESTION_RESPONSES_BY_QUESTIONS = SQL_SELECT_QUESTION_RESPONSE_COLUMNS
+            + " FROM forms_question_response qr" + SQL_JOIN_ENTRY_RESPONSES + " WHERE qr.id_form_response = ? AND qr.id_question IN ( ";
+    // The page is selected in a derived table, since the join returns one row per entry response
+    private static final String SQL_QUERY_SELECT_FORM_QUESTION_RESPONSE_PAGE = SQL_SELECT_QUESTION_RESPONSE_COLUMNS
+            + " FROM ( SELECT id_question_response FROM forms_question_response WHERE id_form_response = ? AND id_question_response > ?"
+            + " ORDER BY id_question_response LIMIT ? ) p INNER JOIN forms_question_response qr ON qr.id_question_response = p.id_question_response"
+            + SQL_JOIN_ENTRY_RESPONSES;
+    private static final String SQL_ORDER_BY_QUESTION_RESPONSE = " ORDER BY qr.id_form_response, qr.id_question_response, r.id_response";
+    private static final String SQL_PARAMETER = "?";
+    private static final String SQL_SEPARATOR = ",";
+    private static final String SQL_CLOSE_PARENTHESIS = " )";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, FormResponse> selectFormResponses( Collection<Integer> collectionIdFormResponse, Plugin plugin )
+    {
+        if ( collectionIdFormResponse.isEmpty( ) )
+        {
+            return Collections.emptyMap( );
+        }
+
+        Map<Integer, FormResponse> mapFormResponses = new HashMap<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( buildInQuery( SQL_QUERY_SELECT_FORM_RESPONSES, collectionIdFormResponse.size( ) ), plugin ) )
+        {
+            int nIndex = 1;
+
+            for ( Integer nIdFormResponse : collectionIdFormResponse )
+            {
+                daoUtil.setInt( nIndex++, nIdFormResponse );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                nIndex = 1;
+                FormResponse formResponse = new FormResponse( );
+                formResponse.setId( daoUtil.getInt( nIndex++ ) );
+                formResponse.setFormId( daoUtil.getInt( nIndex++ ) );
+                formResponse.setGuid( daoUtil.getString( nIndex++ ) );
+                formResponse.setCreation( daoUtil.getTimestamp( nIndex++ ) );
+                formResponse.setUpdate( daoUtil.getTimestamp( nIndex++ ) );
+                formResponse.setFromSave( daoUtil.getBoolean( nIndex++ ) );
+                formResponse.setAdmin( daoUtil.getString( nIndex++ ) );
+                formResponse.setPublished( daoUtil.getBoolean( nIndex++ ) );
+                formResponse.setUpdateStatus( daoUtil.getTimestamp( nIndex ) );
+                mapFormResponses.put( formResponse.getId( ), formResponse );
+            }
+        }
+
+        return mapFormResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, List<FormQuestionResponse>> selectFormQuestionResponses( Collection<Integer> collectionIdFormResponse, Plugin plugin )
+    {
+        if ( collectionIdFormResponse.isEmpty( ) )
+        {
+            return Collections.emptyMap( );
+        }
+
+        Map<Integer, List<FormQuestionResponse>> mapFormQuestionResponses = new HashMap<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil(
+                buildInQuery( SQL_QUERY_SELECT_FORM_QUESTION_RESPONSES, collectionIdFormResponse.size( ) ) + SQL_ORDER_BY_QUESTION_RESPONSE, plugin ) )
+        {
+            int nIndex = 1;
+
+            for ( Integer nIdFormResponse : collectionIdFormResponse )
+            {
+                daoUtil.setInt( nIndex++, nIdFormResponse );
+            }
+
+            daoUtil.executeQuery( );
+
+            for ( FormQuestionResponse formQuestionResponse : getFormQuestionResponses( daoUtil ) )
+            {
+                mapFormQuestionResponses.computeIfAbsent( formQuestionResponse.getIdFormResponse( ), nId -> new ArrayList<>( ) ).add( formQuestionResponse );
+            }
+        }
+
+        return mapFormQuestionResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormQuestionResponse> selectFormQuestionResponses( int nIdFormResponse, Collection<Integer> collectionIdQuestion, Plugin plugin )
+    {
+        if ( collectionIdQuestion.isEmpty( ) )
+        {
+            return new ArrayList<>( );
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil(
+                buildInQuery( SQL_QUERY_SELECT_FORM_QUESTION_RESPONSES_BY_QUESTIONS, collectionIdQuestion.size( ) ) + SQL_ORDER_BY_QUESTION_RESPONSE, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nIdFormResponse );
+
+            for ( Integer nIdQuestion : collectionIdQuestion )
+            {
+                daoUtil.setInt( nIndex++, nIdQuestion );
+            }
+
+            daoUtil.executeQuery( );
+
+            return getFormQuestionResponses( daoUtil );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormQuestionResponse> selectFormQuestionResponsePage( int nIdFormResponse, int nIdLastQuestionResponse, int nPageSize, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_FORM_QUESTION_RESPONSE_PAGE + SQL_ORDER_BY_QUESTION_RESPONSE, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nIdFormResponse );
+            daoUtil.setInt( nIndex++, nIdLastQuestionResponse );
+            daoUtil.setInt( nIndex, nPageSize );
+            daoUtil.executeQuery( );
+
+            return getFormQuestionResponses( daoUtil );
+        }
+    }
+
+    /**
+     * Builds the question responses of the rows of an executed query, ordered by question response, one row per entry response
+     *
+     * @param daoUtil
+     *            the daoUtil of the executed query
+     * @return the question responses, in the order of the rows
+     */
+    private static List<FormQuestionResponse> getFormQuestionResponses( DAOUtil daoUtil )
+    {
+        List<FormQuestionResponse> listFormQuestionResponses = new ArrayList<>( );
+        FormQuestionResponse formQuestionResponse = null;
+
+        while ( daoUtil.next( ) )
+        {
+            int nIndex = 1;
+            int nIdQuestionResponse = daoUtil.getInt( nIndex++ );
+
+            if ( formQuestionResponse == null || formQuestionResponse.getId( ) != nIdQuestionResponse )
+            {
+                formQuestionResponse = new FormQuestionResponse( );
+                formQuestionResponse.setId( nIdQuestionResponse );
+                formQuestionResponse.setIdFormResponse( daoUtil.getInt( nIndex++ ) );
+
+                Question question = new Question( );
+                question.setId( daoUtil.getInt( nIndex++ ) );
+                question.setIdStep( daoUtil.getInt( nIndex++ ) );
+                question.setIterationNumber( daoUtil.getInt( nIndex++ ) );
+                formQuestionResponse.setQuestion( question );
+                formQuestionResponse.setEntryResponse( new ArrayList<>( ) );
+                listFormQuestionResponses.add( formQuestionResponse );
+            }
+            else
+            {
+                nIndex += 4;
+            }
+
+            int nIdResponse = daoUtil.getInt( nIndex++ );
+
+            if ( nIdResponse > 0 )
+            {
+                formQuestionResponse.getEntryResponse( ).add( getResponse( daoUtil, nIdResponse, nIndex ) );
+            }
+        }
+
+        return listFormQuestionResponses;
+    }
+
+    /**
+     * Builds the entry response of the current row
+     *
+     * @param daoUtil
+     *            the daoUtil positioned on the row
+     * @param nIdResponse
+     *            the id of the entry response
+     * @param nFirstIndex
+     *            the index of the first column of the entry response following its id
+     * @return the entry response
+     */
+    private static Response getResponse( DAOUtil daoUtil, int nIdResponse, int nFirstIndex )
+    {
+        int nIndex = nFirstIndex;
+
+        Response response = new Response( );
+        response.setIdResponse( nIdResponse );
+
+        Entry entry = new Entry( );
+        entry.setIdEntry( daoUtil.getInt( nIndex++ ) );
+        response.setEntry( entry );
+
+        response.setResponseValue( daoUtil.getString( nIndex++ ) );
+        response.setIterationNumber( daoUtil.getInt( nIndex++ ) );
+        response.setStatus( daoUtil.getInt( nIndex++ ) );
+        response.setSortOrder( daoUtil.getInt( nIndex++ ) );
+
+        int nIdFile = daoUtil.getInt( nIndex++ );
+
+        if ( nIdFile > 0 )
+        {
+            File file = new File( );
+            file.setIdFile( nIdFile );
+            response.setFile( file );
+        }
+
+        int nIdField = daoUtil.getInt( nIndex++ );
+
+        if ( nIdField > 0 )
+        {
+            Field field = new Field( );
+            field.setIdField( nIdField );
+            field.setTitle( daoUtil.getString( nIndex++ ) );
+            field.setCode( daoUtil.getString( nIndex++ ) );
+            field.setValue( daoUtil.getString( nIndex ) );
+            response.setField( field );
+        }
+
+        return response;
+    }
+
+    /**
+     * Builds a query ending with an IN clause containing the specified number of parameters
+     *
+     * @param strQueryPrefix
+     *            the beginning of the query, up to the opening parenthesis of the IN clause
+     * @param nParameterCount
+     *            the number of parameters
+     * @return the query
+     */
+    static String buildInQuery( String strQueryPrefix, int nParameterCount )
+    {
+        StringBuilder sbQuery = new StringBuilder( strQueryPrefix.length( ) + 2 * nParameterCount + SQL_CLOSE_PARENTHESIS.length( ) );
+        sbQuery.append( strQueryPrefix );
+
+        for ( int i = 0; i < nParameterCount; i++ )
+        {
+            if ( i > 0 )
+            {
+                sbQuery.append( SQL_SEPARATOR );
+            }
+
+            sbQuery.append( SQL_PARAMETER );
+        }
+
+        return sbQuery.append( SQL_CLOSE_PARENTHESIS ).toString( );
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.service.FormsPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class provides instances management methods for set-based lookups on the form responses
+ */
+public final class FormResponseLookupHome
+{
+    // Properties
+    private static final String PROPERTY_BATCH_CHUNK_SIZE = "notifygru-forms.batch.chunkSize";
+    private static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+
+    // Static variable pointed at the DAO instance
+    private static IFormResponseLookupDAO _dao = SpringContextService.getBean( "notifygru-forms.formResponseLookupDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( FormsPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private FormResponseLookupHome( )
+    {
+    }
+
+    /**
+     * Load the specified form responses, without their steps. The form responses are queried by chunks to keep the IN clauses bounded.
+     *
+     * @param collectionIdFormResponse
+     *            the ids of the form responses
+     * @return the form responses, keyed by form response id
+     */
+    public static Map<Integer, FormResponse> findFormResponses( Collection<Integer> collectionIdFormResponse )
+    {
+        Map<Integer, FormResponse> mapFormResponses = new HashMap<>( );
+
+        for ( List<Integer> listChunk : getChunks( collectionIdFormResponse ) )
+        {
+            mapFormResponses.putAll( _dao.selectFormResponses( listChunk, _plugin ) );
+        }
+
+        return mapFormResponses;
+    }
+
+    /**
+     * Load the question responses of the specified form responses, with their entry responses. The form responses are queried by chunks to keep the
+     * IN clauses bounded. The questions only carry their id, their step and the iteration number, and the entries of the entry responses only carry
+     * their id.
+     *
+     * @param collectionIdFormResponse
+     *            the ids of the form responses
+     * @return the question responses, keyed by form response id. The form responses without question responses are missing.
+     */
+    public static Map<Integer, List<FormQuestionResponse>> findFormQuestionResponses( Collection<Integer> collectionIdFormResponse )
+    {
+        Map<Integer, List<FormQuestionResponse>> mapFormQuestionResponses = new HashMap<>( );
+
+        for ( List<Integer> listChunk : getChunks( collectionIdFormResponse ) )
+        {
+            mapFormQuestionResponses.putAll( _dao.selectFormQuestionResponses( listChunk, _plugin ) );
+        }
+
+        return mapFormQuestionResponses;
+    }
+
+    /**
+     * Load the question responses of a form response to the specified questions, with their entry responses. The questions only carry their id, their
+     * step and the iteration number, and the entries of the entry responses only carry their id.
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @param collectionIdQuestion
+     *            the ids of the questions
+     * @return the question responses, ordered by id
+     */
+    public static List<FormQuestionResponse> findFormQuestionResponses( int nIdFormResponse, Collection<Integer> collectionIdQuestion )
+    {
+        return _dao.selectFormQuestionResponses( nIdFormResponse, collectionIdQuestion, _plugin );
+    }
+
+    /**
+     * Load a page of the question responses of a form response, with their entry responses. The questions only carry their id, their step and the
+     * iteration number, and the entries of the entry responses only carry their id.
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @param nIdLastQuestionResponse
+     *            the id of the last question response of the previous page, or 0 for the first page
+     * @param nPageSize
+     *            the maximum number of question responses of the page
+     * @return the question responses of the page, ordered by id. The page is empty after the last question response.
+     */
+    public static List<FormQuestionResponse> findFormQuestionResponsePage( int nIdFormResponse, int nIdLastQuestionResponse, int nPageSize )
+    {
+        return _dao.selectFormQuestionResponsePage( nIdFormResponse, nIdLastQuestionResponse, nPageSize, _plugin );
+    }
+
+    /**
+     * Splits the specified ids into chunks of the configured batch size
+     *
+     * @param collectionId
+     *            the ids
+     * @return the chunks
+     */
+    public static List<List<Integer>> getChunks( Collection<Integer> collectionId )
+    {
+        int nChunkSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_CHUNK_SIZE, DEFAULT_BATCH_CHUNK_SIZE ) );
+        List<List<Integer>> listChunks = new ArrayList<>( );
+        List<Integer> listChunk = new ArrayList<>( Math.min( nChunkSize, collectionId.size( ) ) );
+
+        for ( Integer nId : collectionId )
+        {
+            listChunk.add( nId );
+
+            if ( listChunk.size( ) == nChunkSize )
+            {
+                listChunks.add( listChunk );
+                listChunk = new ArrayList<>( nChunkSize );
+            }
+        }
+
+        if ( !listChunk.isEmpty( ) )
+        {
+            listChunks.add( listChunk );
+        }
+
+        return listChunks;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.business;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * IFormResponseLookupDAO Interface
+ */
+public interface IFormResponseLookupDAO
+{
+    /**
+     * Load the specified form responses, without their steps
+     *
+     * @param collectionIdFormResponse
+     *            the ids of the form responses
+     * @param plugin
+     *            the plugin
+     * @return the form responses, keyed by form response id
+     */
+    Map<Integer, FormResponse> selectFormResponses( Collection<Integer> collectionIdFormResponse, Plugin plugin );
+
+    /**
+     * Load the question responses of the specified form responses, with their entry responses. The questions only carry their id, their step and the
+     * iteration number, the entries of the entry responses only carry their id, and the fields only carry their id, title, code and value.
+     *
+     * @param collectionIdFormResponse
+     *            the ids of the form responses
+     * @param plugin
+     *            the plugin
+     * @return the question responses, keyed by form response id
+     */
+    Map<Integer, List<FormQuestionResponse>> selectFormQuestionResponses( Collection<Integer> collectionIdFormResponse, Plugin plugin );
+
+    /**
+     * Load the question responses of a form response to the specified questions, with their entry responses. The objects are filled as by
+     * {@link #selectFormQuestionResponses(Collection, Plugin)}.
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @param collectionIdQuestion
+     *            the ids of the questions
+     * @param plugin
+     *            the plugin
+     * @return the question responses, ordered by id
+     */
+    List<FormQuestionResponse> selectFormQuestionResponses( int nIdFormResponse, Collection<Integer> collectionIdQuestion, Plugin plugin );
+
+    /**
+     * Load a page of the question responses of a form response, with their entry responses. The pages are read in the order of the question response
+     * ids, each page starting after the last question response of the previous one. The objects are filled as by
+     * {@link #selectFormQuestionResponses(Collection, Plugin)}.
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @param nIdLastQuestionResponse
+     *            the id of the last question response of the previous page, or 0 for the first page
+     * @param nPageSize
+     *            the maximum number of question responses of the page
+     * @param plugin
+     *            the plugin
+     * @return the question responses of the page, ordered by id
+     */
+    List<FormQuestionResponse> selectFormQuestionResponsePage( int nIdFormResponse, int nIdLastQuestionResponse, int nPageSize, Plugin plugin );
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.function.BiConsumer;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class invalidates the caches of the module on all the nodes of a cluster.
+ * <p>
+ * A modification is applied to the caches of the current node immediately, then broadcast to the other nodes through the
+ * {@link ICacheInvalidationTransport} declared in the Spring context. The other nodes apply it when {@link CacheInvalidationDaemon} runs, so the delay
+ * is bounded by the interval of the daemon.
+ * </p>
+ * <p>
+ * The broadcast is disabled by default, for the installations with a single node, and enabled by the property
+ * {@code notifygru-forms.cacheInvalidation.broadcast}.
+ * </p>
+ */
+public final class CacheInvalidationService
+{
+    public static final String RESOURCE_TYPE_FORM = "form";
+    public static final String RESOURCE_TYPE_MAPPING = "mapping";
+    public static final String RESOURCE_KEY_ALL = "*";
+
+    private static final String BEAN_TRANSPORT = "notifygru-forms.cacheInvalidationTransport";
+    private static final String PROPERTY_BROADCAST = "notifygru-forms.cacheInvalidation.broadcast";
+
+    private static CacheInvalidationService _singleton;
+
+    private final ICacheInvalidationTransport _transport;
+    private final BiConsumer<String, String> _invalidator;
+    private final boolean _bBroadcast;
+
+    /**
+     * Constructor
+     *
+     * @param transport
+     *            the transport of the invalidations
+     * @param invalidator
+     *            the invalidator of the caches of the current node, receiving the resource type and the resource key
+     * @param bBroadcast
+     *            {@code true} to broadcast the modifications to the other nodes, {@code false} otherwise
+     */
+    CacheInvalidationService( ICacheInvalidationTransport transport, BiConsumer<String, String> invalidator, boolean bBroadcast )
+    {
+        _transport = transport;
+        _invalidator = invalidator;
+        _bBroadcast = bBroadcast;
+    }
+
+    /**
+     * Invalidates the caches of a form on all the nodes
+     *
+     * @param strIdForm
+     *            the form id, or {@link #RESOURCE_KEY_ALL} for all the forms
+     */
+    public static void formChanged( String strIdForm )
+    {
+        getInstance( ).resourceChanged( RESOURCE_TYPE_FORM, strIdForm );
+    }
+
+    /**
+     * Invalidates the caches of a mapping on all the nodes
+     *
+     * @param strCompleteProviderId
+     *            the complete provider id of the mapping, or {@link #RESOURCE_KEY_ALL} for all the mappings
+     */
+    public static void mappingChanged( String strCompleteProviderId )
+    {
+        getInstance( ).resourceChanged( RESOURCE_TYPE_MAPPING, strCompleteProviderId );
+    }
+
+    /**
+     * Applies the modifications made on the other nodes
+     */
+    public static void receive( )
+    {
+        getInstance( ).receiveChanges( );
+    }
+
+    /**
+     * Invalidates the caches of a resource on the current node, then broadcasts the modification to the other nodes if the broadcast is enabled
+     *
+     * @param strResourceType
+     *            the resource type
+     * @param strResourceKey
+     *            the resource key
+     */
+    void resourceChanged( String strResourceType, String strResourceKey )
+    {
+        _invalidator.accept( strResourceType, strResourceKey );
+
+        if ( _bBroadcast )
+        {
+            _transport.publish( strResourceType, strResourceKey );
+        }
+    }
+
+    /**
+     * Invalidates the caches of the resources modified on the other nodes
+     */
+    void receiveChanges( )
+    {
+        _transport.receive( _invalidator );
+    }
+
+    /**
+     * Invalidates the caches of the current node
+     *
+     * @param strResourceType
+     *            the resource type
+     * @param strResourceKey
+     *            the resource key
+     */
+    private static void invalidateLocalCaches( String strResourceType, String strResourceKey )
+    {
+        AppLogService.debug( "Invalidation of the notifygru-forms caches for the {} {}", strResourceType, strResourceKey );
+
+        if ( RESOURCE_TYPE_FORM.equals( strResourceType ) )
+        {
+            if ( RESOURCE_KEY_ALL.equals( strResourceKey ) )
+            {
+                NotifyGruFormsCacheInvalidator.invalidateForms( );
+            }
+            else
+            {
+                NotifyGruFormsCacheInvalidator.invalidateForm( Integer.parseInt( strResourceKey ) );
+            }
+        }
+        else
+            if ( RESOURCE_TYPE_MAPPING.equals( strResourceType ) )
+            {
+                if ( RESOURCE_KEY_ALL.equals( strResourceKey ) )
+                {
+                    NotifyGruFormsCacheInvalidator.invalidateMappings( );
+                }
+                else
+                {
+                    NotifyGruFormsCacheInvalidator.invalidateMapping( strResourceKey );
+                }
+            }
+    }
+
+    /**
+     * Gives the instance of the current node
+     *
+     * @return the instance
+     */
+    private static synchronized CacheInvalidationService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new CacheInvalidationService( SpringContextService.getBean( BEAN_TRANSPORT ), CacheInvalidationService::invalidateLocalCaches,
+                    AppPropertiesService.getPropertyBoolean( PROPERTY_BROADCAST, false ) );
+        }
+
+        return _singleton;
+    }
+}
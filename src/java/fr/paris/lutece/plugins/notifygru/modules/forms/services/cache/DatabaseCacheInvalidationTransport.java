@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import fr.paris.lutece.plugins.notifygru.modules.forms.NotifyGruFormsPlugin;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.CacheVersion;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.ICacheVersionDAO;
+
+/**
+ * This class broadcasts the cache invalidations through the database. Each modification increments the version stamp of the resource, and each node
+ * polls the version stamps to detect the resources modified since its last poll.
+ * <p>
+ * The modifications published by the current node are also received by it, which only invalidates the resource a second time.
+ * </p>
+ */
+public class DatabaseCacheInvalidationTransport implements ICacheInvalidationTransport
+{
+    private static final String KEY_SEPARATOR = "|";
+
+    private final ICacheVersionDAO _cacheVersionDAO;
+    private Map<String, Integer> _mapKnownVersions;
+
+    /**
+     * Constructor
+     *
+     * @param cacheVersionDAO
+     *            the DAO of the version stamps, shared by all the nodes
+     */
+    public DatabaseCacheInvalidationTransport( ICacheVersionDAO cacheVersionDAO )
+    {
+        _cacheVersionDAO = cacheVersionDAO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publish( String strResourceType, String strResourceKey )
+    {
+        _cacheVersionDAO.increment( strResourceType, strResourceKey, NotifyGruFormsPlugin.getPlugin( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The first call only records the current versions.
+     * </p>
+     */
+    @Override
+    public synchronized void receive( BiConsumer<String, String> listener )
+    {
+        Map<String, Integer> mapVersions = new HashMap<>( );
+
+        for ( CacheVersion version : _cacheVersionDAO.selectAll( NotifyGruFormsPlugin.getPlugin( ) ) )
+        {
+            String strKey = version.getResourceType( ) + KEY_SEPARATOR + version.getResourceKey( );
+            mapVersions.put( strKey, version.getVersion( ) );
+
+            if ( _mapKnownVersions != null && !Integer.valueOf( version.getVersion( ) ).equals( _mapKnownVersions.get( strKey ) ) )
+            {
+                listener.accept( version.getResourceType( ), version.getResourceKey( ) );
+            }
+        }
+
+        _mapKnownVersions = mapVersions;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.FormQuestionSummary;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.FormQuestionSummaryHome;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Index of the summaries of the questions by form id. It is shared by the marker descriptions and the mapping properties of the providers.
+ * <p>
+ * The questions of all the forms missing from the cache are loaded with one query.
+ * </p>
+ */
+public final class FormQuestionIndexCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "NotifyGruFormsFormQuestionIndexCacheService";
+
+    private static FormQuestionIndexCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private FormQuestionIndexCacheService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     *
+     * @return the instance of the service
+     */
+    public static synchronized FormQuestionIndexCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new FormQuestionIndexCacheService( );
+            _singleton.initCache( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the summaries of the questions of the specified forms
+     *
+     * @param collectionIdForm
+     *            the ids of the forms
+     * @return the unmodifiable lists of the summaries of the questions ordered by question id, keyed by form id. Every requested form is a key.
+     */
+    @SuppressWarnings( "unchecked" )
+    public Map<Integer, List<FormQuestionSummary>> getQuestionsByForms( Collection<Integer> collectionIdForm )
+    {
+        Map<Integer, List<FormQuestionSummary>> mapQuestionsByForm = new HashMap<>( );
+        List<Integer> listMissingIdForm = new ArrayList<>( );
+
+        for ( Integer nIdForm : collectionIdForm )
+        {
+            List<FormQuestionSummary> listQuestions = (List<FormQuestionSummary>) getFromCache( String.valueOf( nIdForm ) );
+
+            if ( listQuestions != null )
+            {
+                mapQuestionsByForm.put( nIdForm, listQuestions );
+            }
+            else
+            {
+                listMissingIdForm.add( nIdForm );
+            }
+        }
+
+        if ( !listMissingIdForm.isEmpty( ) )
+        {
+            Map<Integer, List<FormQuestionSummary>> mapLoadedQuestions = FormQuestionSummaryHome.findByForms( listMissingIdForm );
+
+            for ( Integer nIdForm : listMissingIdForm )
+            {
+                List<FormQuestionSummary> listQuestions = Collections
+                        .unmodifiableList( mapLoadedQuestions.getOrDefault( nIdForm, Collections.emptyList( ) ) );
+                putInCache( String.valueOf( nIdForm ), listQuestions );
+                mapQuestionsByForm.put( nIdForm, listQuestions );
+            }
+        }
+
+        return mapQuestionsByForm;
+    }
+
+    /**
+     * Removes the questions of the specified form from the cache
+     *
+     * @param nIdForm
+     *            the form id
+     */
+    public void invalidate( int nIdForm )
+    {
+        removeKey( String.valueOf( nIdForm ) );
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.forms.business.Form;
+import fr.paris.lutece.plugins.forms.business.FormHome;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Index of the forms by workflow id.
+ * <p>
+ * On a cache miss, all the forms are loaded once and the whole index is filled. The index is reset when a form is created, modified or removed.
+ * </p>
+ */
+public final class FormWorkflowIndexCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "NotifyGruFormsFormWorkflowIndexCacheService";
+
+    private static FormWorkflowIndexCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private FormWorkflowIndexCacheService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     *
+     * @return the instance of the service
+     */
+    public static synchronized FormWorkflowIndexCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new FormWorkflowIndexCacheService( );
+            _singleton.initCache( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the forms bound to the specified workflow
+     *
+     * @param nIdWorkflow
+     *            the workflow id
+     * @return the forms, as an unmodifiable list
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<Form> getFormsByWorkflow( int nIdWorkflow )
+    {
+        List<Form> listForms = (List<Form>) getFromCache( String.valueOf( nIdWorkflow ) );
+
+        if ( listForms == null )
+        {
+            listForms = loadIndex( ).get( nIdWorkflow );
+
+            if ( listForms == null )
+            {
+                // A workflow without forms is cached too, so that the forms are not reloaded on each call
+                listForms = Collections.emptyList( );
+                putInCache( String.valueOf( nIdWorkflow ), listForms );
+            }
+        }
+
+        return listForms;
+    }
+
+    /**
+     * Loads all the forms and fills the index
+     *
+     * @return the index, keyed by workflow id
+     */
+    private Map<Integer, List<Form>> loadIndex( )
+    {
+        Map<Integer, List<Form>> mapFormsByWorkflow = new HashMap<>( );
+
+        for ( Form form : FormHome.getFormList( ) )
+        {
+            mapFormsByWorkflow.computeIfAbsent( form.getIdWorkflow( ), nIdWorkflow -> new ArrayList<>( ) ).add( form );
+        }
+
+        for ( Map.Entry<Integer, List<Form>> entry : mapFormsByWorkflow.entrySet( ) )
+        {
+            entry.setValue( Collections.unmodifiableList( entry.getValue( ) ) );
+            putInCache( String.valueOf( entry.getKey( ) ), entry.getValue( ) );
+        }
+
+        return mapFormsByWorkflow;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.provider.MarkerSnapshot;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class stores the marker snapshots in memory. The least recently used snapshots are removed once the capacity, given by the property
+ * {@code notifygru-forms.snapshots.capacity}, is reached.
+ */
+public class InMemoryMarkerSnapshotStore implements IMarkerSnapshotStore
+{
+    private static final String PROPERTY_CAPACITY = "notifygru-forms.snapshots.capacity";
+    private static final int DEFAULT_CAPACITY = 1000;
+
+    private final Map<Integer, MarkerSnapshot> _mapSnapshots;
+
+    /**
+     * Constructor
+     */
+    public InMemoryMarkerSnapshotStore( )
+    {
+        int nCapacity = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_CAPACITY, DEFAULT_CAPACITY ) );
+
+        _mapSnapshots = new LinkedHashMap<Integer, MarkerSnapshot>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Integer, MarkerSnapshot> eldest )
+            {
+                return size( ) > nCapacity;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized MarkerSnapshot get( int nIdFormResponse )
+    {
+        return _mapSnapshots.get( nIdFormResponse );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void put( int nIdFormResponse, MarkerSnapshot snapshot )
+    {
+        _mapSnapshots.put( nIdFormResponse, snapshot );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear( )
+    {
+        _mapSnapshots.clear( );
+    }
+}
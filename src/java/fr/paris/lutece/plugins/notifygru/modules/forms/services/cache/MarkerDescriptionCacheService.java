@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Cache of the marker descriptions of the providers for all the forms of a workflow, keyed by workflow id and locale
+ */
+public final class MarkerDescriptionCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "NotifyGruFormsMarkerDescriptionCacheService";
+    private static final String KEY_SEPARATOR = "_";
+
+    private static MarkerDescriptionCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private MarkerDescriptionCacheService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     *
+     * @return the instance of the service
+     */
+    public static synchronized MarkerDescriptionCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new MarkerDescriptionCacheService( );
+            _singleton.initCache( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the marker descriptions of the specified workflow in the specified locale. They are built if they are not in the cache.
+     *
+     * @param nIdWorkflow
+     *            the workflow id
+     * @param locale
+     *            the locale of the descriptions
+     * @param builder
+     *            the builder of the marker descriptions
+     * @return the marker descriptions, as an unmodifiable list
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<InfoMarker> getMarkerDescriptions( int nIdWorkflow, Locale locale, Supplier<List<InfoMarker>> builder )
+    {
+        String strKey = nIdWorkflow + KEY_SEPARATOR + locale;
+        List<InfoMarker> listNotifyMarkers = (List<InfoMarker>) getFromCache( strKey );
+
+        if ( listNotifyMarkers == null )
+        {
+            listNotifyMarkers = Collections.unmodifiableList( builder.get( ) );
+            putInCache( strKey, listNotifyMarkers );
+        }
+
+        return listNotifyMarkers;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.provider.Constants;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.provider.MarkerPlan;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Cache of the {@link MarkerPlan} objects, keyed by kind of provider and form id
+ */
+public final class MarkerPlanCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "NotifyGruFormsMarkerPlanCacheService";
+
+    private static MarkerPlanCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private MarkerPlanCacheService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     *
+     * @return the instance of the service
+     */
+    public static synchronized MarkerPlanCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new MarkerPlanCacheService( );
+            _singleton.initCache( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the marker plan of the specified form. The plan is compiled if it is not in the cache.
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param nIdForm
+     *            the form id
+     * @return the marker plan
+     */
+    public MarkerPlan getMarkerPlan( String strProviderId, int nIdForm )
+    {
+        String strKey = getKey( MarkerPlan.isAllFormsProvider( strProviderId ), nIdForm );
+        MarkerPlan plan = (MarkerPlan) getFromCache( strKey );
+
+        if ( plan == null )
+        {
+            plan = MarkerPlan.compile( strProviderId, nIdForm );
+            putInCache( strKey, plan );
+        }
+
+        return plan;
+    }
+
+    /**
+     * Removes the marker plans of the specified form from the cache
+     *
+     * @param nIdForm
+     *            the form id
+     */
+    public void invalidate( int nIdForm )
+    {
+        removeKey( getKey( true, nIdForm ) );
+        removeKey( getKey( false, nIdForm ) );
+    }
+
+    /**
+     * Builds the cache key
+     *
+     * @param bAllForms
+     *            {@code true} for the plan of a provider for all the forms of a workflow
+     * @param nIdForm
+     *            the form id
+     * @return the cache key
+     */
+    private static String getKey( boolean bAllForms, int nIdForm )
+    {
+        return bAllForms ? ( Constants.ALL_FORMS + nIdForm ) : String.valueOf( nIdForm );
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class gives access to the store of the marker snapshots, declared in the Spring context as {@code notifygru-forms.markerSnapshotStore}. The
+ * snapshots are disabled by default and enabled by the property {@code notifygru-forms.snapshots.enabled}.
+ */
+public final class MarkerSnapshotService
+{
+    private static final String PROPERTY_ENABLED = "notifygru-forms.snapshots.enabled";
+    private static final String BEAN_STORE = "notifygru-forms.markerSnapshotStore";
+
+    private static IMarkerSnapshotStore _store;
+    private static Boolean _bEnabled;
+
+    /**
+     * Private constructor
+     */
+    private MarkerSnapshotService( )
+    {
+    }
+
+    /**
+     * Tests if the marker snapshots are enabled
+     *
+     * @return {@code true} if the marker snapshots are enabled, {@code false} otherwise
+     */
+    public static synchronized boolean isEnabled( )
+    {
+        if ( _bEnabled != null )
+        {
+            return _bEnabled;
+        }
+
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+    }
+
+    /**
+     * Enables or disables the marker snapshots whatever the property, for instance in the tests and the benchmarks
+     *
+     * @param bEnabled
+     *            {@code true} to enable the snapshots, {@code false} to disable them, or {@code null} to use the property
+     */
+    public static synchronized void setEnabled( Boolean bEnabled )
+    {
+        _bEnabled = bEnabled;
+    }
+
+    /**
+     * Gives the store of the marker snapshots
+     *
+     * @return the store
+     */
+    public static synchronized IMarkerSnapshotStore getStore( )
+    {
+        if ( _store == null )
+        {
+            _store = SpringContextService.getBean( BEAN_STORE );
+        }
+
+        return _store;
+    }
+
+    /**
+     * Replaces the store of the marker snapshots, for instance by a new in-memory store in the tests and the benchmarks
+     *
+     * @param store
+     *            the store, or {@code null} to use the store of the Spring context
+     */
+    public static synchronized void setStore( IMarkerSnapshotStore store )
+    {
+        _store = store;
+    }
+}
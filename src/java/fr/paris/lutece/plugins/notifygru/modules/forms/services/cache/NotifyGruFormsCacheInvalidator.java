@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+/**
+ * This class resets the caches of the module depending on what has changed
+ */
+public final class NotifyGruFormsCacheInvalidator
+{
+    /**
+     * Private constructor
+     */
+    private NotifyGruFormsCacheInvalidator( )
+    {
+    }
+
+    /**
+     * Resets the caches depending on the definition of the forms (forms, steps, questions)
+     */
+    public static void invalidateForms( )
+    {
+        FormWorkflowIndexCacheService.getInstance( ).resetCache( );
+        MarkerPlanCacheService.getInstance( ).resetCache( );
+        MarkerDescriptionCacheService.getInstance( ).resetCache( );
+        ProviderDescriptionCacheService.getInstance( ).resetCache( );
+        FormQuestionIndexCacheService.getInstance( ).resetCache( );
+        clearMarkerSnapshots( );
+    }
+
+    /**
+     * Removes the data of a form from the caches depending on the definition of the forms
+     *
+     * @param nIdForm
+     *            the form id
+     */
+    public static void invalidateForm( int nIdForm )
+    {
+        // The index and the descriptions are shared by all the forms of a workflow, and the workflow of the form may have changed
+        FormWorkflowIndexCacheService.getInstance( ).resetCache( );
+        MarkerDescriptionCacheService.getInstance( ).resetCache( );
+        ProviderDescriptionCacheService.getInstance( ).resetCache( );
+        MarkerPlanCacheService.getInstance( ).invalidate( nIdForm );
+        FormQuestionIndexCacheService.getInstance( ).invalidate( nIdForm );
+        // The snapshots are keyed by form response, so they cannot be removed by form
+        clearMarkerSnapshots( );
+    }
+
+    /**
+     * Resets the caches depending on the notifygru mappings
+     */
+    public static void invalidateMappings( )
+    {
+        NotifygruMappingCacheService.getInstance( ).resetCache( );
+    }
+
+    /**
+     * Removes a mapping from the cache
+     *
+     * @param strCompleteProviderId
+     *            the complete provider id of the mapping
+     */
+    public static void invalidateMapping( String strCompleteProviderId )
+    {
+        NotifygruMappingCacheService.getInstance( ).invalidate( strCompleteProviderId );
+    }
+
+    /**
+     * Removes the marker snapshots, which depend on the definition of the questions
+     */
+    private static void clearMarkerSnapshots( )
+    {
+        if ( MarkerSnapshotService.isEnabled( ) )
+        {
+            MarkerSnapshotService.getStore( ).clear( );
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManager;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.provider.ProviderDataSourceService;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Cache of the {@link NotifygruMappingManager} objects, keyed by complete provider id.
+ * <p>
+ * The size of the cache is bounded by the Lutece cache configuration. The cache is reset when a mapping is saved from the mapping manager administration
+ * and can also be reset from the cache management feature.
+ * </p>
+ */
+public final class NotifygruMappingCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "NotifyGruFormsMappingCacheService";
+
+    private static NotifygruMappingCacheService _singleton;
+
+    private final AtomicLong _lHitCount = new AtomicLong( );
+    private final AtomicLong _lMissCount = new AtomicLong( );
+
+    /**
+     * Private constructor
+     */
+    private NotifygruMappingCacheService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     *
+     * @return the instance of the service
+     */
+    public static synchronized NotifygruMappingCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new NotifygruMappingCacheService( );
+            _singleton.initCache( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the mapping of the specified provider. The mapping is loaded from the database if it is not in the cache.
+     *
+     * @param strCompleteProviderId
+     *            the complete provider id
+     * @return the mapping, or {@code null} if there is no mapping for this provider
+     */
+    public NotifygruMappingManager getMapping( String strCompleteProviderId )
+    {
+        NotifygruMappingManager mapping = (NotifygruMappingManager) getFromCache( strCompleteProviderId );
+
+        if ( mapping != null )
+        {
+            _lHitCount.incrementAndGet( );
+            return mapping;
+        }
+
+        _lMissCount.incrementAndGet( );
+        mapping = ProviderDataSourceService.getDataSource( ).findMapping( strCompleteProviderId );
+
+        // Missing mappings are not cached, so a new mapping is taken into account immediately
+        if ( mapping != null )
+        {
+            putInCache( strCompleteProviderId, mapping );
+        }
+
+        return mapping;
+    }
+
+    /**
+     * Removes the mapping of the specified provider from the cache
+     *
+     * @param strCompleteProviderId
+     *            the complete provider id
+     */
+    public void invalidate( String strCompleteProviderId )
+    {
+        removeKey( strCompleteProviderId );
+    }
+
+    /**
+     * Gives the number of lookups served by the cache
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount( )
+    {
+        return _lHitCount.get( );
+    }
+
+    /**
+     * Gives the number of lookups which needed a database access
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount( )
+    {
+        return _lMissCount.get( );
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.plugins.forms.business.Form;
+import fr.paris.lutece.plugins.forms.business.FormHome;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.provider.Constants;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.provider.MarkerDescriptionBuilder;
+import fr.paris.lutece.plugins.workflow.service.provider.ProviderManagerUtil;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class warms the caches of the providers after a restart: the mappings, the index of the forms by workflow, the marker plans (question lists)
+ * and the marker descriptions of all the forms bound to a workflow.
+ * <p>
+ * The warm-up is disabled by default. It is run in background, after a delay letting the webapp start, with a configurable number of parallel tasks.
+ * </p>
+ */
+public final class ProviderCacheWarmUpService
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "notifygru-forms.warmup.enabled";
+    private static final String PROPERTY_CONCURRENCY = "notifygru-forms.warmup.concurrency";
+    private static final String PROPERTY_DELAY = "notifygru-forms.warmup.delay";
+    private static final int DEFAULT_CONCURRENCY = 2;
+    private static final int DEFAULT_DELAY = 30;
+
+    private static final String THREAD_NAME = "notifygru-forms-warmup";
+    private static final int PROGRESS_STEPS = 10;
+
+    /**
+     * Private constructor
+     */
+    private ProviderCacheWarmUpService( )
+    {
+    }
+
+    /**
+     * Schedules the warm-up if it is enabled
+     */
+    public static void start( )
+    {
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false ) )
+        {
+            return;
+        }
+
+        int nDelay = Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_DELAY, DEFAULT_DELAY ) );
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( createThreadFactory( ) );
+
+        scheduler.schedule( ( ) -> {
+            try
+            {
+                warmUp( );
+            }
+            finally
+            {
+                scheduler.shutdown( );
+            }
+        }, nDelay, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Warms the caches of all the forms bound to a workflow
+     */
+    public static void warmUp( )
+    {
+        long lStart = System.currentTimeMillis( );
+        int nConcurrency = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_CONCURRENCY, DEFAULT_CONCURRENCY ) );
+
+        List<Form> listForms = new ArrayList<>( );
+        Set<Integer> setIdWorkflow = new TreeSet<>( );
+
+        for ( Form form : FormHome.getFormList( ) )
+        {
+            if ( form.getIdWorkflow( ) > 0 )
+            {
+                listForms.add( form );
+                setIdWorkflow.add( form.getIdWorkflow( ) );
+            }
+        }
+
+        if ( listForms.isEmpty( ) )
+        {
+            AppLogService.info( "Warm-up of the notifygru-forms caches: no form bound to a workflow" );
+            return;
+        }
+
+        AppLogService.info( "Warm-up of the notifygru-forms caches: {} forms, {} workflows, {} parallel tasks", listForms.size( ), setIdWorkflow.size( ),
+                nConcurrency );
+
+        // The whole index is loaded on the first miss, so it is loaded once before the parallel tasks
+        FormWorkflowIndexCacheService.getInstance( ).getFormsByWorkflow( setIdWorkflow.iterator( ).next( ) );
+
+        List<Callable<Void>> listTasks = new ArrayList<>( listForms.size( ) + setIdWorkflow.size( ) );
+        AtomicInteger nDone = new AtomicInteger( );
+        int nTotal = listForms.size( ) + setIdWorkflow.size( );
+
+        for ( Form form : listForms )
+        {
+            listTasks.add( createTask( ( ) -> warmUpForm( form ), "form " + form.getId( ), nDone, nTotal ) );
+        }
+
+        for ( Integer nIdWorkflow : setIdWorkflow )
+        {
+            listTasks.add( createTask( ( ) -> warmUpWorkflow( nIdWorkflow ), "workflow " + nIdWorkflow, nDone, nTotal ) );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( nConcurrency, createThreadFactory( ) );
+
+        try
+        {
+            executor.invokeAll( listTasks );
+        }
+        catch( InterruptedException e )
+        {
+            AppLogService.error( "Warm-up of the notifygru-forms caches interrupted", e );
+            Thread.currentThread( ).interrupt( );
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+
+        AppLogService.info( "Warm-up of the notifygru-forms caches done in {} ms", System.currentTimeMillis( ) - lStart );
+    }
+
+    /**
+     * Warms the caches of a form
+     *
+     * @param form
+     *            the form
+     */
+    private static void warmUpForm( Form form )
+    {
+        String strIdForm = String.valueOf( form.getId( ) );
+
+        NotifygruMappingCacheService.getInstance( ).getMapping( ProviderManagerUtil.buildCompleteProviderId( Constants.PROVIDER_MANAGER_ID, strIdForm ) );
+        MarkerPlanCacheService.getInstance( ).getMarkerPlan( strIdForm, form.getId( ) );
+        MarkerPlanCacheService.getInstance( ).getMarkerPlan( Constants.ALL_FORMS + form.getIdWorkflow( ), form.getId( ) );
+    }
+
+    /**
+     * Warms the caches of a workflow, in the default locale
+     *
+     * @param nIdWorkflow
+     *            the workflow id
+     */
+    private static void warmUpWorkflow( int nIdWorkflow )
+    {
+        Locale locale = I18nService.getDefaultLocale( );
+
+        MarkerDescriptionCacheService.getInstance( ).getMarkerDescriptions( nIdWorkflow, locale, ( ) -> MarkerDescriptionBuilder
+                .buildMarkerDescriptions( FormWorkflowIndexCacheService.getInstance( ).getFormsByWorkflow( nIdWorkflow ), locale ) );
+    }
+
+    /**
+     * Creates a warm-up task. A failure is logged and does not stop the other tasks.
+     *
+     * @param task
+     *            the task
+     * @param strName
+     *            the name of the task, for the logs
+     * @param nDone
+     *            the counter of finished tasks
+     * @param nTotal
+     *            the total number of tasks
+     * @return the task
+     */
+    private static Callable<Void> createTask( Runnable task, String strName, AtomicInteger nDone, int nTotal )
+    {
+        return ( ) -> {
+            try
+            {
+                task.run( );
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Warm-up of the notifygru-forms caches failed for the {}", strName, e );
+            }
+
+            int nCount = nDone.incrementAndGet( );
+            int nStep = Math.max( 1, nTotal / PROGRESS_STEPS );
+
+            if ( nCount % nStep == 0 || nCount == nTotal )
+            {
+                AppLogService.info( "Warm-up of the notifygru-forms caches: {}/{} tasks done", nCount, nTotal );
+            }
+
+            return null;
+        };
+    }
+
+    /**
+     * Creates the factory of the daemon threads of the warm-up
+     *
+     * @return the thread factory
+     */
+    private static ThreadFactory createThreadFactory( )
+    {
+        return runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME );
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+}
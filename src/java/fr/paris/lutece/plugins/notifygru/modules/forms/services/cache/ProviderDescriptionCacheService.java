@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+import fr.paris.lutece.plugins.workflowcore.service.provider.ProviderDescription;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Catalog of the provider descriptions, keyed by provider id and locale.
+ * <p>
+ * The cached descriptions are never exposed: each call returns a new {@link ProviderDescription} with its own list of copies of the cached marker
+ * descriptions, which the caller may modify. Serving a description needs neither database access nor localization. The catalog is reset when a form
+ * is modified.
+ * </p>
+ */
+public final class ProviderDescriptionCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "NotifyGruFormsProviderDescriptionCacheService";
+    private static final String KEY_SEPARATOR = "_";
+
+    private static ProviderDescriptionCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private ProviderDescriptionCacheService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     *
+     * @return the instance of the service
+     */
+    public static synchronized ProviderDescriptionCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new ProviderDescriptionCacheService( );
+            _singleton.initCache( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the description of the specified provider. It is built if it is not in the cache.
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param locale
+     *            the locale of the description
+     * @param builder
+     *            the builder of the description
+     * @return a copy of the description
+     */
+    public ProviderDescription getProviderDescription( String strProviderId, Locale locale, Supplier<ProviderDescription> builder )
+    {
+        String strKey = strProviderId + KEY_SEPARATOR + locale;
+        ProviderDescription providerDescription = (ProviderDescription) getFromCache( strKey );
+
+        if ( providerDescription == null )
+        {
+            ProviderDescription providerDescriptionBuilt = builder.get( );
+            providerDescription = new ProviderDescription( providerDescriptionBuilt.getId( ), providerDescriptionBuilt.getLabel( ) );
+            providerDescription.setMarkerDescriptions( Collections.unmodifiableList( new ArrayList<>( providerDescriptionBuilt.getMarkerDescriptions( ) ) ) );
+            putInCache( strKey, providerDescription );
+        }
+
+        Collection<InfoMarker> collectionMarkerDescriptions = providerDescription.getMarkerDescriptions( );
+        List<InfoMarker> listMarkerDescriptionsCopy = new ArrayList<>( collectionMarkerDescriptions.size( ) );
+
+        for ( InfoMarker notifyMarker : collectionMarkerDescriptions )
+        {
+            listMarkerDescriptionsCopy.add( copy( notifyMarker ) );
+        }
+
+        ProviderDescription providerDescriptionCopy = new ProviderDescription( providerDescription.getId( ), providerDescription.getLabel( ) );
+        providerDescriptionCopy.setMarkerDescriptions( listMarkerDescriptionsCopy );
+
+        return providerDescriptionCopy;
+    }
+
+    /**
+     * Copies a marker description
+     *
+     * @param notifyMarker
+     *            the marker description
+     * @return the copy
+     */
+    private static InfoMarker copy( InfoMarker notifyMarker )
+    {
+        InfoMarker notifyMarkerCopy = new InfoMarker( notifyMarker.getMarker( ) );
+        notifyMarkerCopy.setDescription( notifyMarker.getDescription( ) );
+        notifyMarkerCopy.setValue( notifyMarker.getValue( ) );
+
+        return notifyMarkerCopy;
+    }
+}
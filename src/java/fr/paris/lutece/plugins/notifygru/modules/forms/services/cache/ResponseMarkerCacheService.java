@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.Locale;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.provider.ResponseMarkers;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Cache of the rendered markers of the form responses, keyed by form response id, modification dates and locale. A modified form response gets a new
+ * key, so the entries never need to be invalidated.
+ */
+public final class ResponseMarkerCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "NotifyGruFormsResponseMarkerCacheService";
+
+    private static ResponseMarkerCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private ResponseMarkerCacheService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     *
+     * @return the instance of the service
+     */
+    public static synchronized ResponseMarkerCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new ResponseMarkerCacheService( );
+            _singleton.initCache( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the markers of the specified version of a form response. They are rendered if they are not in the cache.
+     *
+     * @param formResponse
+     *            the form response
+     * @param locale
+     *            the locale
+     * @return the markers
+     */
+    public ResponseMarkers getResponseMarkers( FormResponse formResponse, Locale locale )
+    {
+        String strKey = ResponseMarkers.getVersionKey( formResponse, locale );
+        ResponseMarkers responseMarkers = (ResponseMarkers) getFromCache( strKey );
+
+        if ( responseMarkers == null )
+        {
+            responseMarkers = ResponseMarkers.render( formResponse, locale );
+            putInCache( strKey, responseMarkers );
+        }
+
+        return responseMarkers;
+    }
+}
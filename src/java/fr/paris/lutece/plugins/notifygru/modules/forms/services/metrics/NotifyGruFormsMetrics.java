@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.NotifygruMappingCacheService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Metrics of the providers of the module, exposed through JMX.
+ * <p>
+ * When the metrics are disabled (property {@code notifygru-forms.metrics.enabled}), the recording methods return immediately and no clock is read.
+ * </p>
+ */
+public final class NotifyGruFormsMetrics implements NotifyGruFormsMetricsMBean
+{
+    private static final String PROPERTY_METRICS_ENABLED = "notifygru-forms.metrics.enabled";
+    private static final String OBJECT_NAME = "fr.paris.lutece.plugins.notifygru.modules.forms:type=Metrics";
+
+    private static final NotifyGruFormsMetrics _singleton = new NotifyGruFormsMetrics( AppPropertiesService.getPropertyBoolean( PROPERTY_METRICS_ENABLED, false ) );
+
+    private final boolean _bEnabled;
+    private final Timer _timerProviderCreation = new Timer( );
+    private final Timer _timerMarkerGeneration = new Timer( );
+    private final Map<Integer, Timer> _mapTimerMarkerGenerationByForm = new ConcurrentHashMap<>( );
+    private final LongAdder _lDatabaseCallCount = new LongAdder( );
+    private final LongAdder _lFileStoreLookupCount = new LongAdder( );
+
+    /**
+     * Constructor
+     *
+     * @param bEnabled
+     *            {@code true} if the metrics are collected
+     */
+    private NotifyGruFormsMetrics( boolean bEnabled )
+    {
+        _bEnabled = bEnabled;
+    }
+
+    /**
+     * Gives the unique instance of the metrics
+     *
+     * @return the instance of the metrics
+     */
+    public static NotifyGruFormsMetrics getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, if they are enabled
+     */
+    public void register( )
+    {
+        if ( !_bEnabled )
+        {
+            return;
+        }
+
+        try
+        {
+            ObjectName objectName = new ObjectName( OBJECT_NAME );
+
+            if ( !ManagementFactory.getPlatformMBeanServer( ).isRegistered( objectName ) )
+            {
+                ManagementFactory.getPlatformMBeanServer( ).registerMBean( this, objectName );
+            }
+        }
+        catch( JMException e )
+        {
+            AppLogService.error( "Unable to register the notifygru-forms metrics", e );
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server, so that the class loader of the webapp can be released when it is stopped
+     */
+    public void unregister( )
+    {
+        try
+        {
+            ObjectName objectName = new ObjectName( OBJECT_NAME );
+
+            if ( ManagementFactory.getPlatformMBeanServer( ).isRegistered( objectName ) )
+            {
+                ManagementFactory.getPlatformMBeanServer( ).unregisterMBean( objectName );
+            }
+        }
+        catch( JMException e )
+        {
+            AppLogService.error( "Unable to unregister the notifygru-forms metrics", e );
+        }
+    }
+
+    /**
+     * Starts a measure
+     *
+     * @return the start time of the measure, or {@code 0} if the metrics are disabled
+     */
+    public long start( )
+    {
+        return _bEnabled ? System.nanoTime( ) : 0L;
+    }
+
+    /**
+     * Records the creation of providers
+     *
+     * @param lStart
+     *            the start time returned by {@link #start()}
+     * @param nCount
+     *            the number of providers created
+     */
+    public void recordProviderCreation( long lStart, int nCount )
+    {
+        if ( _bEnabled )
+        {
+            _timerProviderCreation.record( System.nanoTime( ) - lStart, nCount );
+        }
+    }
+
+    /**
+     * Records the generation of the markers of a form response
+     *
+     * @param nIdForm
+     *            the form id
+     * @param lStart
+     *            the start time returned by {@link #start()}
+     */
+    public void recordMarkerGeneration( int nIdForm, long lStart )
+    {
+        if ( _bEnabled )
+        {
+            long lDuration = System.nanoTime( ) - lStart;
+            _timerMarkerGeneration.record( lDuration, 1 );
+            _mapTimerMarkerGenerationByForm.computeIfAbsent( nIdForm, nId -> new Timer( ) ).record( lDuration, 1 );
+        }
+    }
+
+    /**
+     * Records a database call made for a provider
+     */
+    public void incrementDatabaseCalls( )
+    {
+        if ( _bEnabled )
+        {
+            _lDatabaseCallCount.increment( );
+        }
+    }
+
+    /**
+     * Records a file store lookup
+     */
+    public void incrementFileStoreLookups( )
+    {
+        if ( _bEnabled )
+        {
+            _lFileStoreLookupCount.increment( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getProviderCreationCount( )
+    {
+        return _timerProviderCreation.getCount( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getProviderCreationAverageMillis( )
+    {
+        return _timerProviderCreation.getAverageMillis( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getProviderCreationMaxMillis( )
+    {
+        return _timerProviderCreation.getMaxMillis( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMarkerGenerationCount( )
+    {
+        return _timerMarkerGeneration.getCount( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMarkerGenerationAverageMillis( )
+    {
+        return _timerMarkerGeneration.getAverageMillis( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMarkerGenerationMaxMillis( )
+    {
+        return _timerMarkerGeneration.getMaxMillis( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getMarkerGenerationByForm( )
+    {
+        StringBuilder sbMetrics = new StringBuilder( );
+
+        for ( Map.Entry<Integer, Timer> entry : new TreeMap<>( _mapTimerMarkerGenerationByForm ).entrySet( ) )
+        {
+            Timer timer = entry.getValue( );
+            sbMetrics.append( "form " ).append( entry.getKey( ) ).append( ": count=" ).append( timer.getCount( ) ).append( ", avg=" )
+                    .append( timer.getAverageMillis( ) ).append( "ms, max=" ).append( timer.getMaxMillis( ) ).append( "ms\n" );
+        }
+
+        return sbMetrics.toString( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDatabaseCallCount( )
+    {
+        return _lDatabaseCallCount.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getDatabaseCallsPerProvider( )
+    {
+        long lProviderCount = _timerProviderCreation.getCount( );
+
+        return ( lProviderCount == 0 ) ? 0 : ( (double) _lDatabaseCallCount.sum( ) / lProviderCount );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFileStoreLookupCount( )
+    {
+        return _lFileStoreLookupCount.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMappingCacheHitCount( )
+    {
+        return NotifygruMappingCacheService.getInstance( ).getHitCount( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMappingCacheMissCount( )
+    {
+        return NotifygruMappingCacheService.getInstance( ).getMissCount( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset( )
+    {
+        _timerProviderCreation.reset( );
+        _timerMarkerGeneration.reset( );
+        _mapTimerMarkerGenerationByForm.clear( );
+        _lDatabaseCallCount.reset( );
+        _lFileStoreLookupCount.reset( );
+    }
+
+    /**
+     * Thread-safe timer
+     */
+    private static final class Timer
+    {
+        private final LongAdder _lCount = new LongAdder( );
+        private final LongAdder _lTotalNanos = new LongAdder( );
+        private final LongAccumulator _lMaxNanos = new LongAccumulator( Math::max, 0L );
+
+        /**
+         * Records a measure
+         *
+         * @param lDurationNanos
+         *            the duration, in nanoseconds
+         * @param nCount
+         *            the number of operations measured
+         */
+        void record( long lDurationNanos, int nCount )
+        {
+            if ( nCount <= 0 )
+            {
+                return;
+            }
+
+            _lCount.add( nCount );
+            _lTotalNanos.add( lDurationNanos );
+            _lMaxNanos.accumulate( lDurationNanos / nCount );
+        }
+
+        /**
+         * Gives the number of operations measured
+         *
+         * @return the number of operations
+         */
+        long getCount( )
+        {
+            return _lCount.sum( );
+        }
+
+        /**
+         * Gives the average duration of an operation
+         *
+         * @return the average duration, in milliseconds
+         */
+        double getAverageMillis( )
+        {
+            long lCount = _lCount.sum( );
+
+            return ( lCount == 0 ) ? 0 : ( toMillis( _lTotalNanos.sum( ) ) / lCount );
+        }
+
+        /**
+         * Gives the maximum duration of an operation
+         *
+         * @return the maximum duration, in milliseconds
+         */
+        double getMaxMillis( )
+        {
+            return toMillis( _lMaxNanos.get( ) );
+        }
+
+        /**
+         * Resets the timer
+         */
+        void reset( )
+        {
+            _lCount.reset( );
+            _lTotalNanos.reset( );
+            _lMaxNanos.reset( );
+        }
+
+        /**
+         * Converts nanoseconds to milliseconds
+         *
+         * @param lNanos
+         *            the duration, in nanoseconds
+         * @return the duration, in milliseconds
+         */
+        private static double toMillis( long lNanos )
+        {
+            return (double) lNanos / TimeUnit.MILLISECONDS.toNanos( 1 );
+        }
+    }
+}
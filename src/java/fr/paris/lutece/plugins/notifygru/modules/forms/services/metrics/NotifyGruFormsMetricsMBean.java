@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.metrics;
+
+/**
+ * JMX interface of the metrics of the module
+ */
+public interface NotifyGruFormsMetricsMBean
+{
+    /**
+     * Tests if the metrics are collected
+     *
+     * @return {@code true} if the metrics are collected, {@code false} otherwise
+     */
+    boolean isEnabled( );
+
+    /**
+     * Gives the number of providers created
+     *
+     * @return the number of providers created
+     */
+    long getProviderCreationCount( );
+
+    /**
+     * Gives the average duration of a provider creation
+     *
+     * @return the average duration, in milliseconds
+     */
+    double getProviderCreationAverageMillis( );
+
+    /**
+     * Gives the maximum duration of a provider creation
+     *
+     * @return the maximum duration, in milliseconds
+     */
+    double getProviderCreationMaxMillis( );
+
+    /**
+     * Gives the number of marker generations
+     *
+     * @return the number of marker generations
+     */
+    long getMarkerGenerationCount( );
+
+    /**
+     * Gives the average duration of a marker generation
+     *
+     * @return the average duration, in milliseconds
+     */
+    double getMarkerGenerationAverageMillis( );
+
+    /**
+     * Gives the maximum duration of a marker generation
+     *
+     * @return the maximum duration, in milliseconds
+     */
+    double getMarkerGenerationMaxMillis( );
+
+    /**
+     * Gives the marker generation metrics of each form, as text
+     *
+     * @return the marker generation metrics of each form
+     */
+    String getMarkerGenerationByForm( );
+
+    /**
+     * Gives the number of database calls made by the providers
+     *
+     * @return the number of database calls
+     */
+    long getDatabaseCallCount( );
+
+    /**
+     * Gives the average number of database calls per provider
+     *
+     * @return the average number of database calls per provider
+     */
+    double getDatabaseCallsPerProvider( );
+
+    /**
+     * Gives the number of file store lookups
+     *
+     * @return the number of file store lookups
+     */
+    long getFileStoreLookupCount( );
+
+    /**
+     * Gives the number of mapping lookups served by the cache
+     *
+     * @return the number of mapping cache hits
+     */
+    long getMappingCacheHitCount( );
+
+    /**
+     * Gives the number of mapping lookups which needed a database access
+     *
+     * @return the number of mapping cache misses
+     */
+    long getMappingCacheMissCount( );
+
+    /**
+     * Resets all the metrics
+     */
+    void reset( );
+}
@@ -6,6 +6,7 @@ public class Constants {
 	  // PROPERTY KEY
     public static final String PROPERTY_SMS_SENDER_NAME = "workflow-notifygruforms.gruprovider.sms.sendername";
     public static final String ALL_FORMS = "*";
+    public static final String PROVIDER_MANAGER_ID = "notifygru-forms.ProviderService";
 
     // PARAMETERS
     public static final String PARAMETER_VIEW_FORM_RESPONSE_DETAILS = "view_form_response_details";
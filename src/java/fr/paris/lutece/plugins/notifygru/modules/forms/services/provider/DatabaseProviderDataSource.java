@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponseHome;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponseHome;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.forms.business.QuestionHome;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManager;
+import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManagerHome;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.FileMetadataHome;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.FormResponseLookupHome;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.metrics.NotifyGruFormsMetrics;
+import fr.paris.lutece.portal.business.file.File;
+
+/**
+ * This class reads the data of the providers from the database, through the Home classes of the forms and of the mapping manager
+ */
+public class DatabaseProviderDataSource implements IProviderDataSource
+{
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FormResponse findFormResponse( int nIdFormResponse )
+    {
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        return FormResponseHome.findByPrimaryKey( nIdFormResponse );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, FormResponse> findFormResponses( Collection<Integer> collectionIdFormResponse )
+    {
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        return FormResponseLookupHome.findFormResponses( collectionIdFormResponse );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormQuestionResponse> findFormQuestionResponses( int nIdFormResponse )
+    {
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        return FormQuestionResponseHome.getFormQuestionResponseListByFormResponse( nIdFormResponse );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question responses are loaded with set-based queries, and their questions are then completed with the questions of their form, which are
+     * loaded once per form.
+     * </p>
+     */
+    @Override
+    public Map<Integer, List<FormQuestionResponse>> findFormQuestionResponses( Collection<FormResponse> collectionFormResponse )
+    {
+        Set<Integer> setIdFormResponse = new LinkedHashSet<>( );
+        Map<Integer, Map<Integer, Question>> mapQuestionsByForm = new HashMap<>( );
+
+        for ( FormResponse formResponse : collectionFormResponse )
+        {
+            setIdFormResponse.add( formResponse.getId( ) );
+            mapQuestionsByForm.computeIfAbsent( formResponse.getFormId( ), this::findQuestionMap );
+        }
+
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        Map<Integer, List<FormQuestionResponse>> mapFormQuestionResponses = FormResponseLookupHome.findFormQuestionResponses( setIdFormResponse );
+
+        for ( FormResponse formResponse : collectionFormResponse )
+        {
+            Map<Integer, Question> mapQuestions = mapQuestionsByForm.get( formResponse.getFormId( ) );
+
+            for ( FormQuestionResponse formQuestionResponse : mapFormQuestionResponses.getOrDefault( formResponse.getId( ), Collections.emptyList( ) ) )
+            {
+                completeQuestion( formQuestionResponse, mapQuestions );
+            }
+        }
+
+        return mapFormQuestionResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormQuestionResponse> findFormQuestionResponses( FormResponse formResponse, Collection<Integer> collectionIdQuestion )
+    {
+        Map<Integer, Question> mapQuestions = findQuestionMap( formResponse.getFormId( ) );
+
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        List<FormQuestionResponse> listFormQuestionResponses = FormResponseLookupHome.findFormQuestionResponses( formResponse.getId( ), collectionIdQuestion );
+
+        for ( FormQuestionResponse formQuestionResponse : listFormQuestionResponses )
+        {
+            completeQuestion( formQuestionResponse, mapQuestions );
+        }
+
+        return listFormQuestionResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The pages are read with keyset pagination on the question response ids. The questions of the form are loaded once, before the first page.
+     * </p>
+     */
+    @Override
+    public void readFormQuestionResponsePages( FormResponse formResponse, int nPageSize, Consumer<List<FormQuestionResponse>> consumer )
+    {
+        Map<Integer, Question> mapQuestions = findQuestionMap( formResponse.getFormId( ) );
+        int nIdLastQuestionResponse = 0;
+        List<FormQuestionResponse> listPage;
+
+        do
+        {
+            NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+            listPage = FormResponseLookupHome.findFormQuestionResponsePage( formResponse.getId( ), nIdLastQuestionResponse, nPageSize );
+
+            if ( listPage.isEmpty( ) )
+            {
+                return;
+            }
+
+            for ( FormQuestionResponse formQuestionResponse : listPage )
+            {
+                completeQuestion( formQuestionResponse, mapQuestions );
+            }
+
+            nIdLastQuestionResponse = listPage.get( listPage.size( ) - 1 ).getId( );
+            consumer.accept( listPage );
+        }
+        while ( listPage.size( ) == nPageSize );
+    }
+
+    /**
+     * Loads the questions of a form, keyed by question id
+     *
+     * @param nIdForm
+     *            the form id
+     * @return the questions
+     */
+    private Map<Integer, Question> findQuestionMap( int nIdForm )
+    {
+        Map<Integer, Question> mapQuestions = new HashMap<>( );
+
+        for ( Question question : findQuestionsByForm( nIdForm ) )
+        {
+            mapQuestions.put( question.getId( ), question );
+        }
+
+        return mapQuestions;
+    }
+
+    /**
+     * Completes the question of a question response, which only carries its id, its step and the iteration number, with the question of the form. Each
+     * question response keeps its own question, since the iteration number is held by the question.
+     *
+     * @param formQuestionResponse
+     *            the question response
+     * @param mapQuestions
+     *            the questions of the form, keyed by question id. The questions missing from it, which have been moved to another form, are loaded and
+     *            added to it.
+     */
+    private static void completeQuestion( FormQuestionResponse formQuestionResponse, Map<Integer, Question> mapQuestions )
+    {
+        Question question = formQuestionResponse.getQuestion( );
+        Question formQuestion = mapQuestions.computeIfAbsent( question.getId( ), nIdQuestion -> {
+            NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+            return QuestionHome.findByPrimaryKey( nIdQuestion );
+        } );
+
+        if ( formQuestion == null )
+        {
+            return;
+        }
+
+        if ( formQuestion.getEntry( ) == null )
+        {
+            NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+            formQuestion.setEntry( EntryHome.findByPrimaryKey( formQuestion.getIdEntry( ) ) );
+        }
+
+        Entry entry = formQuestion.getEntry( );
+        question.setCode( formQuestion.getCode( ) );
+        question.setTitle( formQuestion.getTitle( ) );
+        question.setIdEntry( formQuestion.getIdEntry( ) );
+        question.setEntry( entry );
+
+        for ( Response response : formQuestionResponse.getEntryResponse( ) )
+        {
+            if ( entry != null && response.getEntry( ).getIdEntry( ) == entry.getIdEntry( ) )
+            {
+                response.setEntry( entry );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, File> findFileMetadata( Collection<Integer> collectionIdFile )
+    {
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        return FileMetadataHome.findByPrimaryKeys( collectionIdFile );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Question> findQuestionsByForm( int nIdForm )
+    {
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        return QuestionHome.getListQuestionByIdForm( nIdForm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NotifygruMappingManager findMapping( String strCompleteProviderId )
+    {
+        NotifyGruFormsMetrics.getInstance( ).incrementDatabaseCalls( );
+
+        return NotifygruMappingManagerHome.findByPrimaryKey( strCompleteProviderId );
+    }
+}
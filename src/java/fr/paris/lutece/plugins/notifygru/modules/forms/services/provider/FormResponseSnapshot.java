@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * This class represents the data of a {@link FormResponse} needed by a {@link FormsProvider}.
+ * <p>
+ * Each part of the snapshot which is not given to the constructor is loaded lazily from the {@link IProviderDataSource}, at most once, and then shared
+ * by all the methods of the provider.
+ * </p>
+ */
+public class FormResponseSnapshot
+{
+    private final int _nIdFormResponse;
+    private final IProviderDataSource _dataSource;
+    private FormResponse _formResponse;
+    private List<FormQuestionResponse> _listFormQuestionResponse;
+    private QuestionResponseIndex _questionResponseIndex;
+    private Map<Integer, File> _mapFileMetadata;
+
+    /**
+     * Constructor
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     */
+    public FormResponseSnapshot( int nIdFormResponse )
+    {
+        this( nIdFormResponse, ProviderDataSourceService.getDataSource( ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @param dataSource
+     *            the source of the data of the form response
+     */
+    public FormResponseSnapshot( int nIdFormResponse, IProviderDataSource dataSource )
+    {
+        _nIdFormResponse = nIdFormResponse;
+        _dataSource = dataSource;
+    }
+
+    /**
+     * Constructor used when the form response has already been loaded, for instance with other form responses
+     *
+     * @param formResponse
+     *            the form response
+     * @param dataSource
+     *            the source of the other data of the form response
+     */
+    public FormResponseSnapshot( FormResponse formResponse, IProviderDataSource dataSource )
+    {
+        this( formResponse.getId( ), dataSource );
+        _formResponse = formResponse;
+    }
+
+    /**
+     * Constructor used when the form response, its question responses and the metadata of its files have already been loaded, for instance with other
+     * form responses
+     *
+     * @param formResponse
+     *            the form response
+     * @param listFormQuestionResponse
+     *            the question responses of the form response
+     * @param mapFileMetadata
+     *            the metadata of the files, keyed by file id. It may contain the metadata of the files of other form responses.
+     * @param dataSource
+     *            the source of the other data of the form response
+     */
+    public FormResponseSnapshot( FormResponse formResponse, List<FormQuestionResponse> listFormQuestionResponse, Map<Integer, File> mapFileMetadata,
+            IProviderDataSource dataSource )
+    {
+        this( formResponse, dataSource );
+        _listFormQuestionResponse = listFormQuestionResponse;
+
+        Set<Integer> setIdFile = new LinkedHashSet<>( );
+        collectFileIds( listFormQuestionResponse, setIdFile );
+        _mapFileMetadata = new HashMap<>( );
+
+        for ( Integer nIdFile : setIdFile )
+        {
+            File file = mapFileMetadata.get( nIdFile );
+
+            if ( file != null )
+            {
+                _mapFileMetadata.put( nIdFile, file );
+            }
+        }
+    }
+
+    /**
+     * Gives the id of the form response
+     *
+     * @return the id of the form response
+     */
+    public int getIdFormResponse( )
+    {
+        return _nIdFormResponse;
+    }
+
+    /**
+     * Gives the form response. It is loaded on the first call.
+     *
+     * @return the form response
+     */
+    public synchronized FormResponse getFormResponse( )
+    {
+        if ( _formResponse == null )
+        {
+            _formResponse = _dataSource.findFormResponse( _nIdFormResponse );
+
+            if ( _formResponse == null )
+            {
+                throw new AppException( "No form response found for the id " + _nIdFormResponse );
+            }
+        }
+
+        return _formResponse;
+    }
+
+    /**
+     * Gives the list of the form question responses. It is loaded on the first call.
+     *
+     * @return the list of the form question responses
+     */
+    public synchronized List<FormQuestionResponse> getFormQuestionResponseList( )
+    {
+        if ( _listFormQuestionResponse == null )
+        {
+            _listFormQuestionResponse = _dataSource.findFormQuestionResponses( _nIdFormResponse );
+        }
+
+        return _listFormQuestionResponse;
+    }
+
+    /**
+     * Gives the index of the form question responses by question id. It is built on the first call.
+     *
+     * @return the index of the form question responses
+     */
+    public synchronized QuestionResponseIndex getQuestionResponseIndex( )
+    {
+        if ( _questionResponseIndex == null )
+        {
+            _questionResponseIndex = new QuestionResponseIndex( getFormQuestionResponseList( ) );
+        }
+
+        return _questionResponseIndex;
+    }
+
+    /**
+     * Tests if the list of the form question responses is loaded
+     *
+     * @return {@code true} if the list is loaded, {@code false} otherwise
+     */
+    public synchronized boolean isFormQuestionResponseListLoaded( )
+    {
+        return _listFormQuestionResponse != null;
+    }
+
+    /**
+     * Gives the index of the form question responses of the specified questions. If the list of the form question responses is loaded, its index is
+     * returned. Otherwise, only the responses of the specified questions are loaded, and they are not kept by the snapshot.
+     *
+     * @param collectionIdQuestion
+     *            the ids of the questions
+     * @return the index of the form question responses
+     */
+    public synchronized QuestionResponseIndex getQuestionResponseIndex( Collection<Integer> collectionIdQuestion )
+    {
+        if ( _listFormQuestionResponse != null )
+        {
+            return getQuestionResponseIndex( );
+        }
+
+        return new QuestionResponseIndex( _dataSource.findFormQuestionResponses( getFormResponse( ), collectionIdQuestion ) );
+    }
+
+    /**
+     * Reads the form question responses page by page. If the list of the form question responses is loaded, it is given as a single page. Otherwise,
+     * the pages are read from the data source and are not kept by the snapshot.
+     *
+     * @param nPageSize
+     *            the maximum number of question responses of a page
+     * @param consumer
+     *            the consumer of the pages, called once per page in the order of the question responses
+     */
+    public void readFormQuestionResponsePages( int nPageSize, Consumer<List<FormQuestionResponse>> consumer )
+    {
+        List<FormQuestionResponse> listFormQuestionResponse;
+
+        synchronized( this )
+        {
+            listFormQuestionResponse = _listFormQuestionResponse;
+        }
+
+        if ( listFormQuestionResponse != null )
+        {
+            consumer.accept( listFormQuestionResponse );
+        }
+        else
+        {
+            _dataSource.readFormQuestionResponsePages( getFormResponse( ), nPageSize, consumer );
+        }
+    }
+
+    /**
+     * Gives the metadata of the files attached to the specified question responses, keyed by file id. If the metadata of all the files are loaded,
+     * they are returned. Otherwise, the metadata of the files of the question responses are loaded in one query and are not kept by the snapshot.
+     *
+     * @param listFormQuestionResponse
+     *            the question responses, for instance a page read by {@link #readFormQuestionResponsePages(int, Consumer)}
+     * @return the metadata of the files
+     */
+    public Map<Integer, File> findFileMetadata( List<FormQuestionResponse> listFormQuestionResponse )
+    {
+        synchronized( this )
+        {
+            if ( _mapFileMetadata != null )
+            {
+                return _mapFileMetadata;
+            }
+        }
+
+        Set<Integer> setIdFile = new LinkedHashSet<>( );
+        collectFileIds( listFormQuestionResponse, setIdFile );
+
+        if ( setIdFile.isEmpty( ) )
+        {
+            return new HashMap<>( );
+        }
+
+        return _dataSource.findFileMetadata( setIdFile );
+    }
+
+    /**
+     * Gives the metadata of all the files attached to the form question responses, keyed by file id. The metadata are loaded on the first call, in one
+     * query, without the content of the files.
+     *
+     * @return the metadata of the files
+     */
+    public synchronized Map<Integer, File> getFileMetadata( )
+    {
+        if ( _mapFileMetadata == null )
+        {
+            Set<Integer> setIdFile = new LinkedHashSet<>( );
+            collectFileIds( getFormQuestionResponseList( ), setIdFile );
+            _mapFileMetadata = _dataSource.findFileMetadata( setIdFile );
+        }
+
+        return _mapFileMetadata;
+    }
+
+    /**
+     * Collects the ids of the files attached to the specified question responses
+     *
+     * @param collectionFormQuestionResponse
+     *            the question responses
+     * @param setIdFile
+     *            the set receiving the file ids
+     */
+    static void collectFileIds( Collection<FormQuestionResponse> collectionFormQuestionResponse, Set<Integer> setIdFile )
+    {
+        for ( FormQuestionResponse formQuestionResponse : collectionFormQuestionResponse )
+        {
+            if ( formQuestionResponse.getEntryResponse( ) == null )
+            {
+                continue;
+            }
+
+            for ( Response response : formQuestionResponse.getEntryResponse( ) )
+            {
+                if ( response.getFile( ) != null )
+                {
+                    setIdFile.add( response.getFile( ).getIdFile( ) );
+                }
+            }
+        }
+    }
+}
@@ -34,45 +34,46 @@
 package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletRequest;
 
-import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeFile;
 import fr.paris.lutece.portal.business.file.File;
-import fr.paris.lutece.portal.business.file.FileHome;
-import fr.paris.lutece.portal.service.file.FileServiceException;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import fr.paris.lutece.plugins.forms.business.Form;
 import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
-import fr.paris.lutece.plugins.forms.business.FormQuestionResponseHome;
 import fr.paris.lutece.plugins.forms.business.FormResponse;
-import fr.paris.lutece.plugins.forms.business.FormResponseHome;
-import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeComment;
+import fr.paris.lutece.plugins.forms.business.Question;
 import fr.paris.lutece.plugins.forms.util.FormsConstants;
 import fr.paris.lutece.plugins.forms.web.admin.MultiviewFormResponseDetailsJspBean;
-import fr.paris.lutece.plugins.genericattributes.business.Entry;
-import fr.paris.lutece.plugins.genericattributes.business.Field;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
-import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
 import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
 import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManager;
-import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManagerHome;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.MarkerPlanCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.MarkerSnapshotService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.NotifygruMappingCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.ResponseMarkerCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.metrics.NotifyGruFormsMetrics;
 import fr.paris.lutece.plugins.workflow.service.provider.ProviderManagerUtil;
 import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
 import fr.paris.lutece.plugins.workflowcore.service.provider.IProvider;
 import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
 import fr.paris.lutece.portal.service.file.FileService;
 import fr.paris.lutece.portal.service.file.IFileStoreServiceProvider;
+import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.url.UrlItem;
 
@@ -92,17 +93,22 @@ public class FormsProvider implements IProvider
     private final String _strDemandTypeId;
     private final String _strProviderId;
     private final String _strProvideDemandeId;
-    private final String _strBaseUrl;
+    private final FormsUrlContext _urlContext;
     private final int _nIdFormResponse;
-    private final HttpServletRequest _request;
+    private final FormResponseSnapshot _snapshot;
+    private final boolean _bLazyMarkers;
+    private final MarkerLimits _markerLimits;
+    private final int _nPageSize;
+    private volatile MarkerSnapshot.Builder _markerSnapshotBuilder;
 
     // PROPERTIES
     private static final String MARK_URL_FO_RESPONSE = "url_fo_forms_response_detail";
-    private static final String MARK_CREATION_DATE = "creation_date";
-    private static final String MARK_UPDATE_DATE = "update_date";
-    private static final String MARK_STATUS = "status";
-    private static final String MARK_STATUS_UPDATE_DATE = "update_date_status";
     private static final String MARK_URL_FO_FILES_LINK = "url_fo_forms_files_link";
+    private static final String PROPERTY_LAZY_MARKERS = "notifygru-forms.provider.markers.lazy";
+    private static final String PROPERTY_PAGE_SIZE = "notifygru-forms.provider.markers.pageSize";
+    private static final String RESPONSE_SEPARATOR = ", ";
+
+    private static final Map<String, IFileStoreServiceProvider> _mapFileStoreServiceProviders = new ConcurrentHashMap<>( );
 
     // PARAMETERS
     public static final String PARAMETER_VIEW_FORM_RESPONSE_DETAILS = "view_form_response_details";
@@ -112,6 +118,12 @@ public class FormsProvider implements IProvider
     public static final String PARAMETER_PAGE_FORM_RESPONSE = "formsResponse";
     private static final String PARAMETER_VIEW_FORM_FILES_LINK_FO = "formFileView";
 
+    private static final UrlTemplate.Cache _adminResponseUrlTemplates = new UrlTemplate.Cache( FormsProvider::compileAdminResponseUrlTemplate );
+    private static final UrlTemplate.Cache _foResponseUrlTemplates = new UrlTemplate.Cache(
+            strProdPortalUrl -> compileFrontOfficeUrlTemplate( strProdPortalUrl, PARAMETER_VIEW_FORM_RESPONSE_DETAILS_FO ) );
+    private static final UrlTemplate.Cache _foFilesLinkUrlTemplates = new UrlTemplate.Cache(
+            strProdPortalUrl -> compileFrontOfficeUrlTemplate( strProdPortalUrl, PARAMETER_VIEW_FORM_FILES_LINK_FO ) );
+
 
     /**
      * Constructor
@@ -127,30 +139,102 @@ public class FormsProvider implements IProvider
      */
     public FormsProvider( String strProviderManagerId, String strProviderId, ResourceHistory resourceHistory, HttpServletRequest request )
     {
-        // Get the form response from the resourceHistory
-        FormResponse formResponse = FormResponseHome.findByPrimaryKey( resourceHistory.getIdResource( ) );
-        _nIdFormResponse= formResponse.getId( );
-        _strBaseUrl= AppPathService.getBaseUrl( request );
+        this( strProviderManagerId, strProviderId, resourceHistory, FormsUrlContext.fromRequest( request ) );
+    }
+
+    /**
+     * Constructor which does not need a request
+     *
+     * @param strProviderManagerId
+     *            the provider manager id. Used to retrieve the mapping.
+     * @param strProviderId
+     *            the provider id. Corresponds to the {@code Forms} id. Used to retrieve the mapping.
+     * @param resourceHistory
+     *            the resource history. Corresponds to the {@link FormResponse} object containing the data to provide
+     * @param urlContext
+     *            the URLs used to build the markers
+     */
+    public FormsProvider( String strProviderManagerId, String strProviderId, ResourceHistory resourceHistory, FormsUrlContext urlContext )
+    {
+        this( strProviderManagerId, strProviderId, new FormResponseSnapshot( resourceHistory.getIdResource( ) ), urlContext );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param strProviderManagerId
+     *            the provider manager id. Used to retrieve the mapping.
+     * @param strProviderId
+     *            the provider id
+     * @param snapshot
+     *            the snapshot of the form response containing the data to provide
+     * @param urlContext
+     *            the URLs used to build the markers
+     */
+    private FormsProvider( String strProviderManagerId, String strProviderId, FormResponseSnapshot snapshot, FormsUrlContext urlContext )
+    {
+        this( strProviderId, snapshot, getMapping( strProviderManagerId, snapshot.getFormResponse( ).getFormId( ) ), urlContext );
+    }
+
+    /**
+     * Constructor used when the mapping has already been loaded
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param snapshot
+     *            the snapshot of the form response containing the data to provide
+     * @param mapping
+     *            the mapping of the form
+     * @param urlContext
+     *            the URLs used to build the markers
+     */
+    FormsProvider( String strProviderId, FormResponseSnapshot snapshot, NotifygruMappingManager mapping, FormsUrlContext urlContext )
+    {
+        _snapshot = snapshot;
+        _nIdFormResponse = snapshot.getIdFormResponse( );
+        _urlContext = urlContext;
+        _strProviderId = strProviderId;
+        _nPageSize = AppPropertiesService.getPropertyInt( PROPERTY_PAGE_SIZE, 0 );
+
+        // When the question responses are read page by page, only the responses of the mapped questions are loaded here
+        QuestionResponseIndex questionResponseIndex = ( _nPageSize > 0 )
+                ? _snapshot.getQuestionResponseIndex( Arrays.asList( mapping.getEmail( ), mapping.getConnectionId( ), mapping.getCustomerId( ),
+                        mapping.getMobilePhoneNumber( ), mapping.getDemandReference( ) ) )
+                : _snapshot.getQuestionResponseIndex( );
+
+        _strCustomerEmail = getFormResponseStringValue( questionResponseIndex, mapping.getEmail( ) );
+        _strConnectionId = getFormResponseStringValue( questionResponseIndex, mapping.getConnectionId( ) );
+        _strCustomerId = getFormResponseStringValue( questionResponseIndex, mapping.getCustomerId( ) );
+        _strCustomerPhoneNumber = getFormResponseStringValue( questionResponseIndex, mapping.getMobilePhoneNumber( ) );
+        _strDemandReference = getFormResponseStringValue( questionResponseIndex, mapping.getDemandReference( ) );
+        _strDemandTypeId = String.valueOf( mapping.getDemandeTypeId( ) );
+        _strProvideDemandeId = String.valueOf( _nIdFormResponse );
+        _bLazyMarkers = AppPropertiesService.getPropertyBoolean( PROPERTY_LAZY_MARKERS, false );
+        _markerLimits = MarkerLimits.forProvider( strProviderId );
+    }
 
-        _strProviderId= strProviderId;
-        // Load the mapping manager
-        NotifygruMappingManager mapping = NotifygruMappingManagerHome.findByPrimaryKey( ProviderManagerUtil.buildCompleteProviderId( strProviderManagerId, String.valueOf( formResponse.getFormId( ) )) );
+    /**
+     * Gives the mapping of the specified form
+     *
+     * @param strProviderManagerId
+     *            the provider manager id
+     * @param nIdForm
+     *            the form id
+     * @return the mapping
+     * @throws AppException
+     *             if there is no mapping for the form
+     */
+    static NotifygruMappingManager getMapping( String strProviderManagerId, int nIdForm )
+    {
+        NotifygruMappingManager mapping = NotifygruMappingCacheService.getInstance( )
+                .getMapping( ProviderManagerUtil.buildCompleteProviderId( strProviderManagerId, String.valueOf( nIdForm ) ) );
 
         if ( mapping == null )
         {
-            throw new AppException(
-                    "No mapping found for the form " + formResponse.getFormId( ) + ". Please check the configuration of the module-forms-mappingmanager."  );
+            throw new AppException( "No mapping found for the form " + nIdForm + ". Please check the configuration of the module-forms-mappingmanager." );
         }
-        List<FormQuestionResponse> formQuestionresponseList = FormQuestionResponseHome.getFormQuestionResponseListByFormResponse( resourceHistory.getIdResource( )  );
 
-        _strCustomerEmail = getFormResponseStringValue(formQuestionresponseList, mapping.getEmail( ), formResponse );
-        _strConnectionId =  getFormResponseStringValue( formQuestionresponseList, mapping.getConnectionId( ), formResponse );
-        _strCustomerId = getFormResponseStringValue( formQuestionresponseList, mapping.getCustomerId( ), formResponse );
-        _strCustomerPhoneNumber = getFormResponseStringValue( formQuestionresponseList, mapping.getMobilePhoneNumber( ), formResponse );
-        _strDemandReference =  getFormResponseStringValue(formQuestionresponseList, mapping.getDemandReference( ), formResponse );
-        _strDemandTypeId = String.valueOf( mapping.getDemandeTypeId( ) );
-        _strProvideDemandeId= String.valueOf( formResponse.getId( ) );
-        _request = request;
+        return mapping;
     }
 
     /**
@@ -238,179 +322,392 @@ public class FormsProvider implements IProvider
     @Override
     public Collection<InfoMarker> provideMarkerValues( )
     {
-        Collection<InfoMarker> result = new ArrayList<>( );
+        return provideMarkerValues( _bLazyMarkers );
+    }
 
-        List<FormQuestionResponse> listFormQuestionResponse = FormQuestionResponseHome.getFormQuestionResponseListByFormResponse( _nIdFormResponse );
+    /**
+     * Streams the markers to the specified consumer. The marker of each iteration of a question is emitted as soon as the question response is read,
+     * without collecting the markers in intermediate collections. The markers aggregating all the iterations of the questions are emitted once all
+     * the question responses are read, followed by the markers of the form response.
+     * <p>
+     * When the property {@code notifygru-forms.provider.markers.pageSize} is set, the question responses are read page by page from the database,
+     * each page with the metadata of its files, instead of being loaded all at once. The memory used is not bounded by the page size though: each
+     * aggregated marker keeps the value of every iteration of its question until the end of the generation, the values which are not computed yet
+     * (lazy marker mode, aggregates opened before the marker limit was reached) keep their question responses, the snapshot builder keeps the
+     * recorded values, and the questions of the form are loaded at once.
+     * </p>
+     *
+     * @param consumer
+     *            the consumer of the markers
+     */
+    public void provideMarkerValues( Consumer<InfoMarker> consumer )
+    {
+        provideMarkerValues( consumer, _bLazyMarkers );
+    }
 
-        Map<Integer, InfoMarker> markers = new HashMap<>( );
-        List<InfoMarker> iterativeMarkers = new ArrayList<>();
+    /**
+     * Computes the markers asynchronously. The markers are created on the executor of {@link MarkerExecutorService}, then their values (question
+     * values, file URLs, URLs of the form response, dates) are computed in parallel on the same executor.
+     *
+     * @return the future completed with the markers, all their values being computed
+     */
+    public CompletableFuture<Collection<InfoMarker>> provideMarkerValuesAsync( )
+    {
+        Executor executor = MarkerExecutorService.getExecutor( );
 
-        if(_strProviderId.startsWith( Constants.ALL_FORMS ) )
-        {
-            for ( FormQuestionResponse formQuestionResponse : listFormQuestionResponse )
-            {
-                InfoMarker notifyMarker = markers.computeIfAbsent( formQuestionResponse.getQuestion( ).getId( ),
-                        k  -> new InfoMarker( formQuestionResponse.getQuestion( ).getCode() ) );
-                String value = getValue( formQuestionResponse );
-                setValue( notifyMarker, value );
+        return CompletableFuture.supplyAsync( ( ) -> {
+            Collection<InfoMarker> result = new ArrayList<>( );
+            provideMarkerValues( result::add, true, true );
 
-                InfoMarker iterativeMarker = new InfoMarker(formQuestionResponse.getQuestion( ).getCode() +
-                        Constants.MARK_POSITION_ITERATION + formQuestionResponse.getQuestion().getIterationNumber());
-                iterativeMarkers.add( iterativeMarker );
-                setValue( iterativeMarker, value );
+            return result;
+        }, executor ).thenCompose( collectionMarkers -> {
+            CompletableFuture<?> [ ] arrayValueFutures = new CompletableFuture<?> [ collectionMarkers.size( )];
+            int nIndex = 0;
 
-            }
-        }else {
-            for ( FormQuestionResponse formQuestionResponse : listFormQuestionResponse )
+            for ( InfoMarker notifyMarker : collectionMarkers )
             {
-                InfoMarker notifyMarker = markers.computeIfAbsent( formQuestionResponse.getQuestion( ).getId( ),
-                        k  -> new InfoMarker( Constants.MARK_POSITION + formQuestionResponse.getQuestion( ).getId( ) ) );
-                String value = getValue( formQuestionResponse );
-                setValue(  notifyMarker,  value );
-
-                InfoMarker iterativeMarker = new InfoMarker(Constants.MARK_POSITION + formQuestionResponse.getQuestion().getId() +
-                        Constants.MARK_POSITION_ITERATION + formQuestionResponse.getQuestion().getIterationNumber());
-                iterativeMarkers.add( iterativeMarker );
-                setValue( iterativeMarker, value );
+                arrayValueFutures [nIndex++] = CompletableFuture.runAsync( notifyMarker::getValue, executor );
             }
+
+            return CompletableFuture.allOf( arrayValueFutures ).thenApply( v -> {
+                saveMarkerSnapshot( );
+                return collectionMarkers;
+            } );
+        } );
+    }
+
+    /**
+     * Creates the markers
+     *
+     * @param bLazyMarkers
+     *            {@code true} to compute the values of the markers on demand, {@code false} to compute them immediately
+     * @return the markers
+     */
+    private Collection<InfoMarker> provideMarkerValues( boolean bLazyMarkers )
+    {
+        Collection<InfoMarker> result = new ArrayList<>( );
+        provideMarkerValues( result::add, bLazyMarkers );
+
+        return result;
+    }
+
+    /**
+     * Streams the markers to the specified consumer
+     *
+     * @param consumer
+     *            the consumer of the markers
+     * @param bLazyMarkers
+     *            {@code true} to compute the values of the markers on demand, {@code false} to compute them immediately
+     */
+    private void provideMarkerValues( Consumer<InfoMarker> consumer, boolean bLazyMarkers )
+    {
+        // In the lazy marker mode, the values are computed after the generation, so the snapshot cannot be saved
+        provideMarkerValues( consumer, bLazyMarkers, !bLazyMarkers );
+    }
+
+    /**
+     * Streams the markers to the specified consumer
+     *
+     * @param consumer
+     *            the consumer of the markers
+     * @param bLazyMarkers
+     *            {@code true} to compute the values of the markers on demand, {@code false} to compute them immediately
+     * @param bRecordSnapshot
+     *            {@code true} to record the values in a new snapshot, which is then saved by {@link #saveMarkerSnapshot()}
+     */
+    private void provideMarkerValues( Consumer<InfoMarker> consumer, boolean bLazyMarkers, boolean bRecordSnapshot )
+    {
+        long lStart = NotifyGruFormsMetrics.getInstance( ).start( );
+
+        int nIdForm = _snapshot.getFormResponse( ).getFormId( );
+        MarkerPlan plan = MarkerPlanCacheService.getInstance( ).getMarkerPlan( _strProviderId, nIdForm );
+        QuestionMarkerGeneration generation = new QuestionMarkerGeneration( consumer, bLazyMarkers, bRecordSnapshot, plan );
+
+        if ( _nPageSize > 0 && !_snapshot.isFormQuestionResponseListLoaded( ) )
+        {
+            // Only one page of question responses is read at a time, with the metadata of its files
+            _snapshot.readFormQuestionResponsePages( _nPageSize, listPage -> {
+                Map<Integer, File> mapPageFileMetadata = _snapshot.findFileMetadata( listPage );
+                generation.addQuestionMarkers( listPage, ( ) -> mapPageFileMetadata );
+            } );
+        }
+        else
+        {
+            generation.addQuestionMarkers( _snapshot.getFormQuestionResponseList( ), _snapshot::getFileMetadata );
+        }
+
+        if ( generation.isPlanStale( ) )
+        {
+            MarkerPlanCacheService.getInstance( ).invalidate( nIdForm );
+        }
+
+        generation.addAggregatedMarkers( );
+
+        addMarker( consumer, bLazyMarkers, Constants.MARK_URL_ADMIN_RESPONSE, ( ) -> _adminResponseUrlTemplates.get( _urlContext.getBaseUrl( ) ).render( _nIdFormResponse ) );
+        addMarker( consumer, bLazyMarkers, MARK_URL_FO_RESPONSE, ( ) -> _foResponseUrlTemplates.get( _urlContext.getProdPortalUrl( ) ).render( _nIdFormResponse ) );
+        addMarker( consumer, bLazyMarkers, MARK_URL_FO_FILES_LINK, ( ) -> _foFilesLinkUrlTemplates.get( _urlContext.getProdPortalUrl( ) ).render( _nIdFormResponse ) );
+        addResponseMarker( consumer, bLazyMarkers, Constants.MARK_CREATION_DATE );
+        addResponseMarker( consumer, bLazyMarkers, Constants.MARK_CREATION_TIME );
+        addResponseMarker( consumer, bLazyMarkers, Constants.MARK_UPDATE_DATE );
+        addResponseMarker( consumer, bLazyMarkers, Constants.MARK_UPDATE_TIME );
+        addResponseMarker( consumer, bLazyMarkers, ResponseMarkers.MARK_STATUS );
+        addResponseMarker( consumer, bLazyMarkers, ResponseMarkers.MARK_STATUS_UPDATE_DATE );
+
+        MarkerSnapshot.Builder snapshotBuilder = generation.getSnapshotBuilder( );
+        _markerSnapshotBuilder = snapshotBuilder;
+
+        if ( snapshotBuilder != null && !bLazyMarkers )
+        {
+            saveMarkerSnapshot( );
+        }
+
+        NotifyGruFormsMetrics.getInstance( ).recordMarkerGeneration( nIdForm, lStart );
+    }
+
+    /**
+     * Stores the snapshot of the values computed during the last generation of the markers, if the snapshots are enabled. The snapshot is saved at the
+     * end of the generation, or once all the values are computed by {@link #provideMarkerValuesAsync()}. In the synchronous lazy marker mode, the
+     * snapshots of the previous generations are reused but no snapshot is saved.
+     */
+    private void saveMarkerSnapshot( )
+    {
+        MarkerSnapshot.Builder snapshotBuilder = _markerSnapshotBuilder;
+
+        if ( snapshotBuilder == null )
+        {
+            return;
+        }
+
+        MarkerSnapshot snapshot = snapshotBuilder.build( );
+        MarkerSnapshot previousSnapshot = MarkerSnapshotService.getStore( ).get( _nIdFormResponse );
+
+        // Nothing has changed since the previous snapshot
+        if ( previousSnapshot != null && previousSnapshot.getContentHash( ) == snapshot.getContentHash( ) && previousSnapshot.size( ) >= snapshot.size( ) )
+        {
+            return;
+        }
+
+        MarkerSnapshotService.getStore( ).put( _nIdFormResponse, snapshot );
+    }
+
+    /**
+     * Applies the truncation policy to a marker value exceeding the maximum length
+     *
+     * @param strValue
+     *            the marker value
+     * @return the marker value, truncated if needed
+     */
+    private String limit( String strValue )
+    {
+        return _markerLimits.truncate( strValue, ( ) -> _foResponseUrlTemplates.get( _urlContext.getProdPortalUrl( ) ).render( _nIdFormResponse ) );
+    }
+
+    /**
+     * Emits a marker to the specified consumer
+     *
+     * @param consumer
+     *            the consumer of the markers
+     * @param bLazyMarkers
+     *            {@code true} to compute the value of the marker on demand
+     * @param strMarker
+     *            the marker name
+     * @param valueSupplier
+     *            the supplier computing the value of the marker
+     */
+    private void addMarker( Consumer<InfoMarker> consumer, boolean bLazyMarkers, String strMarker, Supplier<String> valueSupplier )
+    {
+        consumer.accept( createMarker( strMarker, valueSupplier, bLazyMarkers ) );
+    }
+
+    /**
+     * Emits a marker of the form response itself. The markers of the form response are rendered once per version of
+     * the form response and shared through {@link ResponseMarkerCacheService}.
+     *
+     * @param consumer
+     *            the consumer of the markers
+     * @param bLazyMarkers
+     *            {@code true} to compute the value of the marker on demand
+     * @param strMarker
+     *            the marker name
+     */
+    private void addResponseMarker( Consumer<InfoMarker> consumer, boolean bLazyMarkers, String strMarker )
+    {
+        addMarker( consumer, bLazyMarkers, strMarker, ( ) -> ResponseMarkerCacheService.getInstance( )
+                .getResponseMarkers( _snapshot.getFormResponse( ), I18nService.getDefaultLocale( ) ).getValue( strMarker ) );
+    }
+
+    /**
+     * Creates a marker. Its value is computed immediately, or on demand in the lazy marker mode.
+     *
+     * @param strMarker
+     *            the marker name
+     * @param valueSupplier
+     *            the supplier computing the value of the marker
+     * @param bLazyMarkers
+     *            {@code true} to compute the value of the marker on demand
+     * @return the marker
+     */
+    private static InfoMarker createMarker( String strMarker, Supplier<String> valueSupplier, boolean bLazyMarkers )
+    {
+        if ( bLazyMarkers )
+        {
+            return new LazyInfoMarker( strMarker, valueSupplier );
+        }
+
+        InfoMarker notifyMarker = new InfoMarker( strMarker );
+        notifyMarker.setValue( valueSupplier.get( ) );
+
+        if ( AppLogService.isDebugEnabled( ) )
+        {
+            AppLogService.debug( "Adding infomarker {} = {}", notifyMarker.getMarker( ), notifyMarker.getValue( ) );
         }
-        result.addAll( markers.values( ) );
-        result.addAll( iterativeMarkers );
 
-        FormResponse formResponse = FormResponseHome.findByPrimaryKey( _nIdFormResponse );
+        return notifyMarker;
+    }
 
-        InfoMarker notifyMarkerUrl = new InfoMarker( Constants.MARK_URL_ADMIN_RESPONSE );
-        UrlItem url = new UrlItem( _strBaseUrl + MultiviewFormResponseDetailsJspBean.CONTROLLER_JSP_NAME_WITH_PATH );
+    /**
+     * Compiles the template of the back office URL of the form responses
+     *
+     * @param strBaseUrl
+     *            the base URL of the back office
+     * @return the template
+     */
+    private static UrlTemplate compileAdminResponseUrlTemplate( String strBaseUrl )
+    {
+        UrlItem url = new UrlItem( strBaseUrl + MultiviewFormResponseDetailsJspBean.CONTROLLER_JSP_NAME_WITH_PATH );
         url.addParameter( FormsConstants.PARAMETER_TARGET_VIEW, Constants.PARAMETER_VIEW_FORM_RESPONSE_DETAILS );
-        url.addParameter( Constants.PARAMETER_ID_FORM_RESPONSES, _nIdFormResponse );
-        notifyMarkerUrl.setValue( url.getUrl( ) );
-        result.add( notifyMarkerUrl );
 
-        InfoMarker notifyMarkerFOUrl = new InfoMarker( MARK_URL_FO_RESPONSE );
-        UrlItem urlFO = new UrlItem( AppPathService.getProdUrl( _request ) + AppPathService.getPortalUrl( ) );
+        return UrlTemplate.compile( url, Constants.PARAMETER_ID_FORM_RESPONSES );
+    }
+
+    /**
+     * Compiles the template of a front office URL of the form responses
+     *
+     * @param strProdPortalUrl
+     *            the production URL of the portal
+     * @param strView
+     *            the view
+     * @return the template
+     */
+    private static UrlTemplate compileFrontOfficeUrlTemplate( String strProdPortalUrl, String strView )
+    {
+        UrlItem urlFO = new UrlItem( strProdPortalUrl );
         urlFO.addParameter( FormsConstants.PARAMETER_PAGE, PARAMETER_PAGE_FORM_RESPONSE );
-        urlFO.addParameter( FormsConstants.PARAMETER_TARGET_VIEW, PARAMETER_VIEW_FORM_RESPONSE_DETAILS_FO );
-        urlFO.addParameter( PARAMETER_ID_FORM_RESPONSES_FO, _nIdFormResponse );
-        notifyMarkerFOUrl.setValue( urlFO.getUrl( ) );
-        result.add( notifyMarkerFOUrl );
-
-        InfoMarker notifyMarkerFOFileUrl = new InfoMarker( MARK_URL_FO_FILES_LINK );
-        UrlItem urlFilesLinkFo = new UrlItem( AppPathService.getProdUrl( _request ) + AppPathService.getPortalUrl( ) );
-        urlFilesLinkFo.addParameter( FormsConstants.PARAMETER_PAGE, PARAMETER_PAGE_FORM_RESPONSE );
-        urlFilesLinkFo.addParameter( FormsConstants.PARAMETER_TARGET_VIEW, PARAMETER_VIEW_FORM_FILES_LINK_FO );
-        urlFilesLinkFo.addParameter( PARAMETER_ID_FORM_RESPONSES_FO, _nIdFormResponse );
-        notifyMarkerFOFileUrl.setValue( urlFilesLinkFo.getUrl( ) );
-        result.add( notifyMarkerFOFileUrl );
-
-        InfoMarker creationDateMarker = new InfoMarker( MARK_CREATION_DATE );
-        creationDateMarker.setValue( formResponse.getCreation( ).toString( ) );
-        result.add( creationDateMarker );
-
-        InfoMarker updateDateMarker = new InfoMarker( MARK_UPDATE_DATE );
-        updateDateMarker.setValue( formResponse.getCreation( ).toString( ) );
-        result.add( updateDateMarker );
-
-        InfoMarker statusMarker = new InfoMarker( MARK_STATUS );
-        statusMarker.setValue( String.valueOf( formResponse.isPublished( ) ) );
-        result.add( statusMarker );
-
-        InfoMarker updateStatusDateMarker = new InfoMarker( MARK_STATUS_UPDATE_DATE );
-        updateStatusDateMarker.setValue( formResponse.getUpdateStatus( ).toString( ) );
-        result.add( updateStatusDateMarker );
+        urlFO.addParameter( FormsConstants.PARAMETER_TARGET_VIEW, strView );
 
-        return result;
+        return UrlTemplate.compile( urlFO, PARAMETER_ID_FORM_RESPONSES_FO );
     }
+
     /**
      * Get value of formQuestionResponse
      * @param formQuestionResponse
+     * @param questionMarker the compiled marker of the question
+     * @param valueLimits the limits applied while the value is rendered
+     * @param fileMetadata the supplier of the metadata of the files of the question response
      * @return value
      */
-    private String getValue(FormQuestionResponse formQuestionResponse) {
+    private String getValue( FormQuestionResponse formQuestionResponse, QuestionMarker questionMarker, MarkerLimits valueLimits,
+            Supplier<Map<Integer, File>> fileMetadata ) {
 
-        IEntryTypeService entryTypeService = EntryTypeServiceManager.getEntryTypeService( formQuestionResponse.getQuestion( ).getEntry( ) );
-        String value = "";
-        if ( entryTypeService instanceof EntryTypeComment )
+        switch( questionMarker.getValueKind( ) )
+        {
+            case COMMENT:
+                return questionMarker.buildCommentDownloadUrl( );
+            case FILE:
+                return getFileValue( formQuestionResponse, valueLimits, fileMetadata.get( ) );
+            default:
+                break;
+        }
+        if ( CollectionUtils.isEmpty( formQuestionResponse.getEntryResponse( ) ) )
+        {
+            return StringUtils.EMPTY;
+        }
+        IEntryTypeService entryTypeService = questionMarker.getEntryTypeService( );
+        MarkerValueBuilder value = valueLimits.newValueBuilder( );
+        for ( Response response : formQuestionResponse.getEntryResponse( ) )
         {
-            Entry entry = formQuestionResponse.getQuestion( ).getEntry( );
-            Field fieldFile = entry.getFieldByCode( IEntryTypeService.FIELD_DOWNLOADABLE_FILE );
-            if ( fieldFile != null )
+            String strValue = entryTypeService.getResponseValueForRecap( formQuestionResponse.getQuestion( ).getEntry( ), null, response, null );
+            if ( StringUtils.isEmpty( strValue ) )
             {
-                IFileStoreServiceProvider fileStoreprovider = FileService.getInstance( ).getFileStoreServiceProvider( "formsDatabaseFileStoreProvider" );
-
-                Map<String, String> additionnalData = new HashMap<>( );
-                additionnalData.put( FileService.PARAMETER_RESOURCE_ID, String.valueOf( entry.getIdResource( ) ) );
-                additionnalData.put( FileService.PARAMETER_RESOURCE_TYPE, Form.RESOURCE_TYPE );
-                additionnalData.put( FileService.PARAMETER_PROVIDER, fileStoreprovider.getName( ) );
-
-                value = fileStoreprovider.getFileDownloadUrlFO( fieldFile.getValue( ), additionnalData );
+                continue;
             }
-        } else if (entryTypeService instanceof EntryTypeFile) {
-            List <Response> responses = formQuestionResponse.getEntryResponse();
-            File file = null;
-            for (int i = 0; i < responses.size(); i++)
+            // The remaining responses are not rendered once the maximum length is reached
+            if ( ( value.length( ) > 0 && !value.append( RESPONSE_SEPARATOR ) ) || !value.append( strValue ) )
             {
-                if (responses.get(i).getFile() != null)
-                {
-                    file = FileHome.findByPrimaryKey( responses.get(i).getFile().getIdFile( ) );
-                    if ( file != null)
-                    {
-                        try {
-                            IFileStoreServiceProvider fss = FileService.getInstance( ).getFileStoreServiceProvider( file.getOrigin() );
-                            file = fss.getFile(file.getFileKey() );
-
-                            file.setUrl(fss.getFileDownloadUrlFO( file.getFileKey()));
-
-                            responses.get(i).setFile( file );
-                        }
-                        catch (FileServiceException e) {
-                            AppLogService.error("Error getting file from file store service provider", e);
-                        }
-                    }
-                }
-                value += file.getTitle()+": "+_strBaseUrl+file.getUrl()+"\n";
+                break;
             }
-            return value;
-        }
-        if ( CollectionUtils.isNotEmpty( formQuestionResponse.getEntryResponse( ) ) )
-        {
-            value = formQuestionResponse.getEntryResponse( ).stream( ).map(
-                            response -> entryTypeService.getResponseValueForRecap( formQuestionResponse.getQuestion( ).getEntry( ), null, response, null ) )
-                    .filter( StringUtils::isNotEmpty ).collect( Collectors.joining( ", " ) );
         }
-        return value;
+        return value.toString( );
     }
+
     /**
-     * Set value in infoMarker
-     * @param notifyMarker the InfoMarker
-     * @param value the value to set
+     * Get the value of a file formQuestionResponse : the title and the download URL of each file
+     * @param formQuestionResponse
+     * @param valueLimits the limits applied while the value is rendered
+     * @param mapFileMetadata the metadata of the files, keyed by file id
+     * @return value
      */
-    private void setValue( InfoMarker notifyMarker, String value ) {
-        if ( notifyMarker.getValue( ) == null )
+    private String getFileValue( FormQuestionResponse formQuestionResponse, MarkerLimits valueLimits, Map<Integer, File> mapFileMetadata )
+    {
+        if ( CollectionUtils.isEmpty( formQuestionResponse.getEntryResponse( ) ) )
         {
-            notifyMarker.setValue( value );
+            return StringUtils.EMPTY;
         }
-        else
+        MarkerValueBuilder value = valueLimits.newValueBuilder( );
+        for ( Response response : formQuestionResponse.getEntryResponse( ) )
         {
-            notifyMarker.setValue( notifyMarker.getValue( ) + "<br>" + value );
+            File file = ( response.getFile( ) != null ) ? mapFileMetadata.get( response.getFile( ).getIdFile( ) ) : null;
+            if ( file == null )
+            {
+                continue;
+            }
+            IFileStoreServiceProvider fss = getFileStoreServiceProvider( file.getOrigin( ) );
+            if ( fss == null )
+            {
+                AppLogService.error( "No file store service provider found for the file {}", file.getIdFile( ) );
+                continue;
+            }
+            NotifyGruFormsMetrics.getInstance( ).incrementFileStoreLookups( );
+            if ( !( value.append( file.getTitle( ) ) && value.append( ": " ) && value.append( _urlContext.getBaseUrl( ) )
+                    && value.append( fss.getFileDownloadUrlFO( file.getFileKey( ) ) ) && value.append( "\n" ) ) )
+            {
+                break;
+            }
         }
-        AppLogService.debug( "Adding infomarker {} = {}", notifyMarker.getMarker( ),  notifyMarker.getValue( ) );
+        return value.toString( );
     }
 
+    /**
+     * Get the file store service provider of the given origin. The providers are resolved once per origin.
+     * @param strOrigin the origin of the file
+     * @return the file store service provider, or {@code null} if there is none
+     */
+    private static IFileStoreServiceProvider getFileStoreServiceProvider( String strOrigin )
+    {
+        IFileStoreServiceProvider fss = _mapFileStoreServiceProviders.get( StringUtils.defaultString( strOrigin ) );
+        if ( fss == null )
+        {
+            fss = FileService.getInstance( ).getFileStoreServiceProvider( strOrigin );
+            if ( fss != null )
+            {
+                _mapFileStoreServiceProviders.put( StringUtils.defaultString( strOrigin ), fss );
+            }
+        }
+        return fss;
+    }
 
     /**
-     * Get the form response string value with given nIdResponse and given formResponse
-     * @param formQuestionresponseList
-     * 			The form Question response List
+     * Get the form response string value with given nIdResponse
+     * @param questionResponseIndex
+     *            The index of the form question responses
      * @param nIdResponse
      *            The id response
-     * @param formResponse
-     *            The form response
      * @return the form response String value
      */
-    private String getFormResponseStringValue( List<FormQuestionResponse> formQuestionresponseList,  int nIdResponse, FormResponse formResponse )
+    private String getFormResponseStringValue( QuestionResponseIndex questionResponseIndex, int nIdResponse )
     {
-        List<Response> responseList =formQuestionresponseList.stream( ).filter( response -> response.getQuestion( ).getId( ) == nIdResponse ).findFirst( ).map( FormQuestionResponse::getEntryResponse )
-                .orElse( null );
+        FormQuestionResponse formQuestionResponse = questionResponseIndex.getFirst( nIdResponse );
+        List<Response> responseList = ( formQuestionResponse != null ) ? formQuestionResponse.getEntryResponse( ) : null;
 
         if ( CollectionUtils.isNotEmpty( responseList ) )
         {
@@ -419,4 +716,295 @@ public class FormsProvider implements IProvider
         return StringUtils.EMPTY;
     }
 
+    /**
+     * State of the generation of the question markers of a form response. The question responses are given all at once, or page by page: the
+     * marker of each iteration is emitted as soon as its question response is read, and the aggregated markers once all the question responses are
+     * read.
+     */
+    private final class QuestionMarkerGeneration
+    {
+        private final Consumer<InfoMarker> _consumer;
+        private final boolean _bLazyMarkers;
+        private final MarkerPlan _plan;
+        private final MarkerSnapshot _previousSnapshot;
+        private final MarkerSnapshot.Builder _snapshotBuilder;
+        // The aggregated markers, in the order of the question ids
+        private final SortedMap<Integer, AggregatedValues> _mapAggregatedMarkers = new TreeMap<>( );
+        private int _nMarkerCount;
+        private boolean _bPlanStale;
+
+        /**
+         * Constructor
+         *
+         * @param consumer
+         *            the consumer of the markers
+         * @param bLazyMarkers
+         *            {@code true} to compute the values of the markers on demand, {@code false} to compute them immediately
+         * @param bRecordSnapshot
+         *            {@code true} to record the values in a new snapshot
+         * @param plan
+         *            the marker plan of the form
+         */
+        QuestionMarkerGeneration( Consumer<InfoMarker> consumer, boolean bLazyMarkers, boolean bRecordSnapshot, MarkerPlan plan )
+        {
+            _consumer = consumer;
+            _bLazyMarkers = bLazyMarkers;
+            _plan = plan;
+
+            boolean bSnapshotEnabled = MarkerSnapshotService.isEnabled( );
+            _previousSnapshot = bSnapshotEnabled ? MarkerSnapshotService.getStore( ).get( _nIdFormResponse ) : null;
+            _snapshotBuilder = ( bSnapshotEnabled && bRecordSnapshot ) ? new MarkerSnapshot.Builder( ) : null;
+        }
+
+        /**
+         * Creates the markers of the specified question responses
+         *
+         * @param listFormQuestionResponse
+         *            the question responses
+         * @param fileMetadata
+         *            the supplier of the metadata of the files of the question responses
+         */
+        void addQuestionMarkers( List<FormQuestionResponse> listFormQuestionResponse, Supplier<Map<Integer, File>> fileMetadata )
+        {
+            for ( FormQuestionResponse formQuestionResponse : listFormQuestionResponse )
+            {
+                addQuestionMarkers( formQuestionResponse, fileMetadata );
+            }
+        }
+
+        /**
+         * Creates the markers of a question response. The limit is checked before each marker is created: once it is reached, no marker is opened,
+         * but the open aggregates keep receiving the values of their iterations.
+         *
+         * @param formQuestionResponse
+         *            the question response
+         * @param fileMetadata
+         *            the supplier of the metadata of the files of the question response
+         */
+        private void addQuestionMarkers( FormQuestionResponse formQuestionResponse, Supplier<Map<Integer, File>> fileMetadata )
+        {
+            Question question = formQuestionResponse.getQuestion( );
+            QuestionMarker questionMarker = _plan.getQuestionMarker( question );
+
+            if ( questionMarker == null )
+            {
+                // The question was added or modified after the plan was compiled
+                _bPlanStale = true;
+                questionMarker = QuestionMarker.compile( question, _plan.isAllForms( ) );
+            }
+
+            AggregatedValues aggregatedValues = _mapAggregatedMarkers.get( question.getId( ) );
+
+            if ( aggregatedValues == null && !_markerLimits.isMarkerCountReached( _nMarkerCount ) )
+            {
+                aggregatedValues = new AggregatedValues( questionMarker.getMarker( ) );
+                _mapAggregatedMarkers.put( question.getId( ), aggregatedValues );
+                _nMarkerCount++;
+            }
+
+            boolean bIterationMarker = !_markerLimits.isMarkerCountReached( _nMarkerCount );
+            // The values containing download URLs are not kept, since the URLs may be signed or limited in time
+            boolean bSnapshotValue = ( _previousSnapshot != null || _snapshotBuilder != null ) && MarkerSnapshot.isSnapshotValue( questionMarker );
+            long lHash = bSnapshotValue ? MarkerSnapshot.hash( formQuestionResponse, questionMarker ) : 0L;
+
+            if ( aggregatedValues == null && !bIterationMarker )
+            {
+                if ( _snapshotBuilder != null && bSnapshotValue )
+                {
+                    _snapshotBuilder.carry( _previousSnapshot, question.getId( ), question.getIterationNumber( ), lHash );
+                }
+
+                return;
+            }
+
+            QuestionMarker compiledMarker = questionMarker;
+            // The values recorded in the snapshots are not truncated, so that they can be reused whatever the limits of the provider
+            MarkerLimits valueLimits = ( _snapshotBuilder != null && bSnapshotValue ) ? MarkerLimits.UNLIMITED : _markerLimits;
+            String strPreviousValue = ( _previousSnapshot != null && bSnapshotValue )
+                    ? _previousSnapshot.getValue( question.getId( ), question.getIterationNumber( ), lHash )
+                    : null;
+            MemoizedValue value = ( strPreviousValue != null ) ? MemoizedValue.of( strPreviousValue )
+                    : new MemoizedValue( ( ) -> getValue( formQuestionResponse, compiledMarker, valueLimits, fileMetadata ) );
+
+            if ( _snapshotBuilder != null && bSnapshotValue )
+            {
+                _snapshotBuilder.add( question.getId( ), question.getIterationNumber( ), lHash, value );
+            }
+
+            if ( aggregatedValues != null )
+            {
+                aggregatedValues.add( value );
+            }
+
+            if ( bIterationMarker )
+            {
+                String strIterationMarker = questionMarker.getIterationMarker( question.getIterationNumber( ) );
+                _consumer.accept( createMarker( strIterationMarker, ( ) -> limit( value.get( ) ), _bLazyMarkers ) );
+                _nMarkerCount++;
+            }
+        }
+
+        /**
+         * Emits the markers aggregating all the iterations of the questions, once all the question responses are read
+         */
+        void addAggregatedMarkers( )
+        {
+            if ( _markerLimits.isMarkerCountReached( _nMarkerCount ) )
+            {
+                AppLogService.debug( "Maximum number of markers reached for the form response {}", _nIdFormResponse );
+            }
+
+            for ( AggregatedValues aggregatedValues : _mapAggregatedMarkers.values( ) )
+            {
+                _consumer.accept( createMarker( aggregatedValues.getMarker( ), ( ) -> limit( aggregatedValues.aggregate( _markerLimits ) ), _bLazyMarkers ) );
+            }
+        }
+
+        /**
+         * Tests if a question has been added or modified after the marker plan was compiled
+         *
+         * @return {@code true} if the marker plan is stale, {@code false} otherwise
+         */
+        boolean isPlanStale( )
+        {
+            return _bPlanStale;
+        }
+
+        /**
+         * Gives the builder of the snapshot recording the values
+         *
+         * @return the builder, or {@code null} if no snapshot is recorded
+         */
+        MarkerSnapshot.Builder getSnapshotBuilder( )
+        {
+            return _snapshotBuilder;
+        }
+    }
+
+    /**
+     * Values of all the iterations of a question, aggregated into one marker
+     */
+    private static final class AggregatedValues
+    {
+        private static final String VALUE_SEPARATOR = "<br>";
+
+        private final String _strMarker;
+        private final List<Supplier<String>> _listValues = new ArrayList<>( );
+
+        /**
+         * Constructor
+         *
+         * @param strMarker
+         *            the marker name
+         */
+        AggregatedValues( String strMarker )
+        {
+            _strMarker = strMarker;
+        }
+
+        /**
+         * Gives the marker name
+         *
+         * @return the marker name
+         */
+        String getMarker( )
+        {
+            return _strMarker;
+        }
+
+        /**
+         * Adds a value
+         *
+         * @param value
+         *            the value
+         */
+        void add( Supplier<String> value )
+        {
+            _listValues.add( value );
+        }
+
+        /**
+         * Aggregates the values. The values are joined in a single buffer sized once, so the cost is linear in the total length of the values. When
+         * the length of the values is limited, the values are not read once the limit is reached.
+         *
+         * @param markerLimits
+         *            the limits of the markers
+         * @return the aggregated value
+         */
+        String aggregate( MarkerLimits markerLimits )
+        {
+            if ( _listValues.size( ) == 1 )
+            {
+                return _listValues.get( 0 ).get( );
+            }
+
+            if ( markerLimits.getMaxValueLength( ) > 0 )
+            {
+                return aggregate( markerLimits.newValueBuilder( ) );
+            }
+
+            String [ ] arrayValues = new String [ _listValues.size( )];
+            int nLength = 0;
+
+            for ( int i = 0; i < arrayValues.length; i++ )
+            {
+                arrayValues [i] = _listValues.get( i ).get( );
+                nLength += String.valueOf( arrayValues [i] ).length( ) + VALUE_SEPARATOR.length( );
+            }
+
+            StringBuilder sbValue = null;
+
+            for ( String strValue : arrayValues )
+            {
+                if ( sbValue != null )
+                {
+                    sbValue.append( VALUE_SEPARATOR ).append( strValue );
+                }
+                else
+                    if ( strValue != null )
+                    {
+                        sbValue = new StringBuilder( nLength ).append( strValue );
+                    }
+            }
+
+            return ( sbValue != null ) ? sbValue.toString( ) : null;
+        }
+
+        /**
+         * Aggregates the values in a bounded builder
+         *
+         * @param value
+         *            the builder of the aggregated value
+         * @return the aggregated value
+         */
+        private String aggregate( MarkerValueBuilder value )
+        {
+            boolean bEmpty = true;
+
+            for ( Supplier<String> valueSupplier : _listValues )
+            {
+                String strValue = valueSupplier.get( );
+
+                if ( bEmpty )
+                {
+                    // The leading null values are ignored
+                    if ( strValue != null )
+                    {
+                        bEmpty = false;
+                        if ( !value.append( strValue ) )
+                        {
+                            break;
+                        }
+                    }
+                }
+                else
+                    if ( !( value.append( VALUE_SEPARATOR ) && value.append( strValue ) ) )
+                    {
+                        break;
+                    }
+            }
+
+            return bEmpty ? null : value.toString( );
+        }
+    }
 }
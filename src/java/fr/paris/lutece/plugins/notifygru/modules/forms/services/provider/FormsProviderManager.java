@@ -35,26 +35,41 @@ package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
 
 import fr.paris.lutece.plugins.forms.business.Form;
 import fr.paris.lutece.plugins.forms.business.FormHome;
-import fr.paris.lutece.plugins.forms.business.Question;
-import fr.paris.lutece.plugins.forms.business.QuestionHome;
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
 import fr.paris.lutece.plugins.forms.service.provider.GenericFormsProvider;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 
+import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManager;
 import fr.paris.lutece.plugins.modulenotifygrumappingmanager.service.AbstractProviderManagerWithMapping;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.FormQuestionSummary;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.FormQuestionIndexCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.FormWorkflowIndexCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.MarkerDescriptionCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.ProviderDescriptionCacheService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.metrics.NotifyGruFormsMetrics;
 import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
 import fr.paris.lutece.plugins.workflowcore.service.action.ActionService;
 import fr.paris.lutece.plugins.workflowcore.service.provider.IProvider;
 import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
 import fr.paris.lutece.plugins.workflowcore.service.provider.ProviderDescription;
 import fr.paris.lutece.plugins.workflowcore.service.task.ITask;
+import fr.paris.lutece.portal.business.file.File;
 import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.util.ReferenceList;
 
 /**
@@ -94,51 +109,70 @@ public class FormsProviderManager extends AbstractProviderManagerWithMapping
         Collection<ProviderDescription> collectionProviderDescriptions = new ArrayList<>( );
 
         int nIdWorkflow = _actionService.findByPrimaryKey( task.getAction( ).getId( ) ).getWorkflow( ).getId( );
-        
-        for ( Form form : FormHome.getFormList( ) )
+        String strTitlePrefix = I18nService.getLocalizedString( Constants.TITLE_I18NKEY, I18nService.getDefaultLocale( ) );
+
+        for ( Form form : FormWorkflowIndexCacheService.getInstance( ).getFormsByWorkflow( nIdWorkflow ) )
         {
-            if ( ( nIdWorkflow == form.getIdWorkflow( ) ) )
-            {
-                ProviderDescription providerDescription = new ProviderDescription( String.valueOf( form.getId( ) ),
-                        I18nService.getLocalizedString( Constants.TITLE_I18NKEY, I18nService.getDefaultLocale( ) ) + form.getTitle( ) );
-                collectionProviderDescriptions.add( providerDescription );
-            }
+            ProviderDescription providerDescription = new ProviderDescription( String.valueOf( form.getId( ) ), strTitlePrefix + form.getTitle( ) );
+            collectionProviderDescriptions.add( providerDescription );
         }
-        collectionProviderDescriptions.add( new ProviderDescription( Constants.ALL_FORMS + nIdWorkflow ,
-                I18nService.getLocalizedString( Constants.TITLE_I18NKEY, I18nService.getDefaultLocale( ) ) + Constants.DESCRIPTION_ALLFORMS_SUFFIX ) );
+        collectionProviderDescriptions.add( new ProviderDescription( Constants.ALL_FORMS + nIdWorkflow, strTitlePrefix + Constants.DESCRIPTION_ALLFORMS_SUFFIX ) );
         
         return collectionProviderDescriptions;
     }
  
     /**
      * {@inheritDoc}
+     * <p>
+     * The descriptions are served from {@link ProviderDescriptionCacheService}
+     * </p>
      */
     @Override
     public ProviderDescription getProviderDescription( String strProviderId )
     {
-        Collection<InfoMarker> collectionNotifyMarkers = new ArrayList<>( );
+        Locale locale = I18nService.getDefaultLocale( );
+
+        return ProviderDescriptionCacheService.getInstance( ).getProviderDescription( strProviderId, locale,
+                ( ) -> buildProviderDescription( strProviderId, locale ) );
+    }
+
+    /**
+     * Builds the description of a provider
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param locale
+     *            the locale
+     * @return the description
+     */
+    private static ProviderDescription buildProviderDescription( String strProviderId, Locale locale )
+    {
+        Collection<InfoMarker> collectionNotifyMarkers;
         ProviderDescription providerDescription;
-        
-    	if(strProviderId.startsWith( Constants.ALL_FORMS ) ) 
-    	{
-    		
-    		int nIdWorkflow= Integer.parseInt( strProviderId.substring(1));
-    		   providerDescription = new ProviderDescription( strProviderId,
-                      I18nService.getLocalizedString( Constants.TITLE_I18NKEY, I18nService.getDefaultLocale( ) ) + Constants.DESCRIPTION_ALLFORMS_SUFFIX );
-    		 collectionNotifyMarkers.addAll(getProviderMarkerDescriptions( FormHome.getFormList( ).stream().filter(form -> form.getIdWorkflow() == nIdWorkflow).collect(Collectors.toList()) ));
-    		
-    	}else {
-    		
-    		Form form = FormHome.findByPrimaryKey( Integer.parseInt( strProviderId ) );
-
-             providerDescription = new ProviderDescription( String.valueOf( form.getId( ) ),
-                    I18nService.getLocalizedString( Constants.TITLE_I18NKEY, I18nService.getDefaultLocale( ) ) + form.getTitle( ) );
-
-             collectionNotifyMarkers= GenericFormsProvider.getProviderMarkerDescriptions( form );
-        
-    	}
-    	
-    	providerDescription.setMarkerDescriptions( collectionNotifyMarkers );
+        String strTitlePrefix = I18nService.getLocalizedString( Constants.TITLE_I18NKEY, locale );
+
+        if ( strProviderId.startsWith( Constants.ALL_FORMS ) )
+        {
+            int nIdWorkflow = Integer.parseInt( strProviderId.substring( 1 ) );
+            providerDescription = new ProviderDescription( strProviderId, strTitlePrefix + Constants.DESCRIPTION_ALLFORMS_SUFFIX );
+            collectionNotifyMarkers = MarkerDescriptionCacheService.getInstance( ).getMarkerDescriptions( nIdWorkflow, locale, ( ) -> MarkerDescriptionBuilder
+                    .buildMarkerDescriptions( FormWorkflowIndexCacheService.getInstance( ).getFormsByWorkflow( nIdWorkflow ), locale ) );
+        }
+        else
+        {
+            Form form = FormHome.findByPrimaryKey( Integer.parseInt( strProviderId ) );
+
+            if ( form == null )
+            {
+                throw new AppException( "No form found for the provider " + strProviderId );
+            }
+
+            providerDescription = new ProviderDescription( String.valueOf( form.getId( ) ), strTitlePrefix + form.getTitle( ) );
+            collectionNotifyMarkers = GenericFormsProvider.getProviderMarkerDescriptions( form );
+        }
+
+        providerDescription.setMarkerDescriptions( collectionNotifyMarkers );
+
         return providerDescription;
     }
 
@@ -148,7 +182,116 @@ public class FormsProviderManager extends AbstractProviderManagerWithMapping
     @Override
     public IProvider createProvider( String strProviderId, ResourceHistory resourceHistory, HttpServletRequest request )
     {
-        return new FormsProvider( getId( ), strProviderId, resourceHistory, request );
+        return createProvider( strProviderId, resourceHistory, FormsUrlContext.fromRequest( request ) );
+    }
+
+    /**
+     * Creates a provider without request, for instance in a daemon. The URLs of the markers are built from the configuration.
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param resourceHistory
+     *            the resource history
+     * @return the provider
+     * @see FormsUrlContext#fromConfiguration()
+     */
+    public IProvider createProvider( String strProviderId, ResourceHistory resourceHistory )
+    {
+        return createProvider( strProviderId, resourceHistory, FormsUrlContext.fromConfiguration( ) );
+    }
+
+    /**
+     * Creates a provider
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param resourceHistory
+     *            the resource history
+     * @param urlContext
+     *            the URLs used to build the markers
+     * @return the provider
+     */
+    public IProvider createProvider( String strProviderId, ResourceHistory resourceHistory, FormsUrlContext urlContext )
+    {
+        long lStart = NotifyGruFormsMetrics.getInstance( ).start( );
+        IProvider provider = new FormsProvider( getId( ), strProviderId, resourceHistory, urlContext );
+        NotifyGruFormsMetrics.getInstance( ).recordProviderCreation( lStart, 1 );
+
+        return provider;
+    }
+
+    /**
+     * Creates the providers of several resource histories at once, which is useful for mass workflow actions. The form responses are loaded with
+     * set-based queries, by chunks, instead of one query per resource history, as are their question responses and the metadata of their files. Each
+     * mapping and the questions of each form are read once.
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param collectionResourceHistory
+     *            the resource histories
+     * @param request
+     *            the request
+     * @return the providers, in the order of the resource histories
+     */
+    public List<IProvider> createProviders( String strProviderId, Collection<ResourceHistory> collectionResourceHistory, HttpServletRequest request )
+    {
+        return createProviders( strProviderId, collectionResourceHistory, FormsUrlContext.fromRequest( request ) );
+    }
+
+    /**
+     * Creates the providers of several resource histories at once
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param collectionResourceHistory
+     *            the resource histories
+     * @param urlContext
+     *            the URLs used to build the markers
+     * @return the providers, in the order of the resource histories
+     * @see #createProviders(String, Collection, HttpServletRequest)
+     */
+    public List<IProvider> createProviders( String strProviderId, Collection<ResourceHistory> collectionResourceHistory, FormsUrlContext urlContext )
+    {
+        long lStart = NotifyGruFormsMetrics.getInstance( ).start( );
+        Set<Integer> setIdFormResponse = new LinkedHashSet<>( );
+
+        for ( ResourceHistory resourceHistory : collectionResourceHistory )
+        {
+            setIdFormResponse.add( resourceHistory.getIdResource( ) );
+        }
+
+        IProviderDataSource dataSource = ProviderDataSourceService.getDataSource( );
+        Map<Integer, FormResponse> mapFormResponses = dataSource.findFormResponses( setIdFormResponse );
+        Map<Integer, List<FormQuestionResponse>> mapFormQuestionResponses = dataSource.findFormQuestionResponses( mapFormResponses.values( ) );
+        Set<Integer> setIdFile = new LinkedHashSet<>( );
+
+        for ( List<FormQuestionResponse> listFormQuestionResponse : mapFormQuestionResponses.values( ) )
+        {
+            FormResponseSnapshot.collectFileIds( listFormQuestionResponse, setIdFile );
+        }
+
+        Map<Integer, File> mapFileMetadata = dataSource.findFileMetadata( setIdFile );
+        Map<Integer, NotifygruMappingManager> mapMappingByForm = new HashMap<>( );
+        List<IProvider> listProviders = new ArrayList<>( collectionResourceHistory.size( ) );
+
+        for ( ResourceHistory resourceHistory : collectionResourceHistory )
+        {
+            FormResponse formResponse = mapFormResponses.get( resourceHistory.getIdResource( ) );
+
+            if ( formResponse == null )
+            {
+                throw new AppException( "No form response found for the id " + resourceHistory.getIdResource( ) );
+            }
+
+            NotifygruMappingManager mapping = mapMappingByForm.computeIfAbsent( formResponse.getFormId( ), nId -> FormsProvider.getMapping( getId( ), nId ) );
+            List<FormQuestionResponse> listFormQuestionResponse = mapFormQuestionResponses.getOrDefault( formResponse.getId( ), new ArrayList<>( ) );
+            FormResponseSnapshot snapshot = new FormResponseSnapshot( formResponse, listFormQuestionResponse, mapFileMetadata, dataSource );
+            listProviders.add( new FormsProvider( strProviderId, snapshot, mapping, urlContext ) );
+        }
+
+        NotifyGruFormsMetrics.getInstance( ).recordProviderCreation( lStart, listProviders.size( ) );
+
+        return listProviders;
     }
 
     /**
@@ -159,11 +302,11 @@ public class FormsProviderManager extends AbstractProviderManagerWithMapping
     {
         Collection<ProviderDescription> collectionProviderDescriptions = new ArrayList<>( );
         List<Form> listForms = FormHome.getFormList( );
+        String strTitlePrefix = I18nService.getLocalizedString( Constants.TITLE_I18NKEY, I18nService.getDefaultLocale( ) );
 
         for ( Form form : listForms )
         {
-            ProviderDescription providerDescription = new ProviderDescription( String.valueOf( form.getId( ) ),
-                    I18nService.getLocalizedString( Constants.TITLE_I18NKEY, I18nService.getDefaultLocale( ) ) + form.getTitle( ) );
+            ProviderDescription providerDescription = new ProviderDescription( String.valueOf( form.getId( ) ), strTitlePrefix + form.getTitle( ) );
             collectionProviderDescriptions.add( providerDescription );
         }
 
@@ -176,52 +319,43 @@ public class FormsProviderManager extends AbstractProviderManagerWithMapping
     @Override
     public ReferenceList getMappingPropertiesForProvider( String strProviderId )
     {
-         return QuestionHome.getQuestionsReferenceListByForm( Integer.parseInt( strProviderId ) );
+        return getMappingPropertiesForProviders( Collections.singletonList( strProviderId ) ).get( strProviderId );
     }
-    
+
     /**
-     * Get the collection of InfoMarker, for the given form
-     * 
-     * @param listForm
-     *            The form list
-     * @return the collection of the notifyMarkers
+     * Gives the mapping properties of several providers at once. The questions of the forms are read from the shared question index, so the forms
+     * which are not in the index are loaded with one query.
+     *
+     * @param collectionProviderId
+     *            the provider ids. Each provider id corresponds to a form id.
+     * @return the reference lists of the questions (question id, question title), keyed by provider id
      */
-    private Collection<InfoMarker> getProviderMarkerDescriptions( List<Form> listForm )
+    public Map<String, ReferenceList> getMappingPropertiesForProviders( Collection<String> collectionProviderId )
     {
-        Collection<InfoMarker> collectionNotifyMarkers = new ArrayList<>( );
-        List<Question> questionList = new ArrayList<>( );
-        
-        for(Form form: listForm) {
-        	
-        	questionList.addAll( QuestionHome.getListQuestionByIdForm( form.getId( ) ));
+        Map<String, Integer> mapIdFormByProvider = new LinkedHashMap<>( );
+
+        for ( String strProviderId : collectionProviderId )
+        {
+            mapIdFormByProvider.put( strProviderId, Integer.parseInt( strProviderId ) );
         }
 
-        for ( Question formQuestion : questionList )
+        Map<Integer, List<FormQuestionSummary>> mapQuestionsByForm = FormQuestionIndexCacheService.getInstance( )
+                .getQuestionsByForms( new LinkedHashSet<>( mapIdFormByProvider.values( ) ) );
+        Map<String, ReferenceList> mapMappingProperties = new LinkedHashMap<>( );
+
+        for ( Map.Entry<String, Integer> entry : mapIdFormByProvider.entrySet( ) )
         {
-        	if( collectionNotifyMarkers.stream().noneMatch( p -> p.getMarker( ).equals(formQuestion.getCode( )))) {
-        		
-        		InfoMarker notifyMarker = new InfoMarker( formQuestion.getCode( ));
-        		notifyMarker.setDescription( formQuestion.getColumnTitle( ) );
-        		collectionNotifyMarkers.add( notifyMarker );
-        	}
+            ReferenceList refListQuestions = new ReferenceList( );
+
+            for ( FormQuestionSummary question : mapQuestionsByForm.get( entry.getValue( ) ) )
+            {
+                refListQuestions.addItem( question.getIdQuestion( ), question.getTitle( ) );
+            }
+
+            mapMappingProperties.put( entry.getKey( ), refListQuestions );
         }
-        InfoMarker notifyMarkerURl = new InfoMarker( Constants.MARK_URL_ADMIN_RESPONSE );
-        notifyMarkerURl.setDescription( I18nService.getLocalizedString( Constants.MESSAGE_DESCRIPTION, I18nService.getDefaultLocale( ) ) );
-        InfoMarker creationDateMarker = new InfoMarker( Constants.MARK_CREATION_DATE );
-        creationDateMarker.setDescription( I18nService.getLocalizedString( Constants.MESSAGE_CREATION_DATE, I18nService.getDefaultLocale( ) ) );
-        InfoMarker creationTimeMarker = new InfoMarker( Constants.MARK_CREATION_TIME );
-        creationTimeMarker.setDescription( I18nService.getLocalizedString( Constants.MESSAGE_CREATION_TIME, I18nService.getDefaultLocale( ) ) );
-        InfoMarker updateDateMarker = new InfoMarker( Constants.MARK_UPDATE_DATE );
-        updateDateMarker.setDescription( I18nService.getLocalizedString( Constants.MESSAGE_UPDATE_DATE, I18nService.getDefaultLocale( ) ) );
-        InfoMarker updateTimeMarker = new InfoMarker( Constants.MARK_UPDATE_TIME );
-        updateTimeMarker.setDescription( I18nService.getLocalizedString( Constants.MESSAGE_UPDATE_TIME, I18nService.getDefaultLocale( ) ) );
-        collectionNotifyMarkers.add( notifyMarkerURl );
-        collectionNotifyMarkers.add( creationDateMarker );
-        collectionNotifyMarkers.add( creationTimeMarker );
-        collectionNotifyMarkers.add( updateDateMarker );
-        collectionNotifyMarkers.add( updateTimeMarker );
-        return collectionNotifyMarkers;
+
+        return mapMappingProperties;
     }
-    
 
 }
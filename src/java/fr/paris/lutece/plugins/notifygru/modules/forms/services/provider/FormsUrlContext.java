@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class represents the URLs used to build the markers of a provider. It is captured when the provider is created so that the provider does not
+ * depend on the request and can be evaluated outside of the servlet thread.
+ */
+public final class FormsUrlContext
+{
+    private static final String PROPERTY_BASE_URL = "notifygru-forms.url.base";
+    private static final String PROPERTY_PROD_URL = "notifygru-forms.url.prod";
+
+    private final String _strBaseUrl;
+    private final String _strProdPortalUrl;
+
+    /**
+     * Constructor
+     *
+     * @param strBaseUrl
+     *            the base URL of the webapp
+     * @param strProdPortalUrl
+     *            the production URL of the portal
+     */
+    public FormsUrlContext( String strBaseUrl, String strProdPortalUrl )
+    {
+        _strBaseUrl = strBaseUrl;
+        _strProdPortalUrl = strProdPortalUrl;
+    }
+
+    /**
+     * Captures the URLs of the specified request
+     *
+     * @param request
+     *            the request
+     * @return the URL context
+     */
+    public static FormsUrlContext fromRequest( HttpServletRequest request )
+    {
+        return new FormsUrlContext( AppPathService.getBaseUrl( request ), AppPathService.getProdUrl( request ) + AppPathService.getPortalUrl( ) );
+    }
+
+    /**
+     * Gives the URLs to use when there is no request, for instance in a daemon. They come from the properties {@code notifygru-forms.url.base} and
+     * {@code notifygru-forms.url.prod} if they are defined, otherwise from the base URL of the webapp configured in the core properties, the production
+     * URL being derived from it.
+     *
+     * @return the URL context
+     */
+    public static FormsUrlContext fromConfiguration( )
+    {
+        String strBaseUrl = AppPropertiesService.getProperty( PROPERTY_BASE_URL );
+
+        if ( StringUtils.isBlank( strBaseUrl ) )
+        {
+            strBaseUrl = AppPathService.getBaseUrl( );
+        }
+
+        String strProdUrl = AppPropertiesService.getProperty( PROPERTY_PROD_URL );
+
+        if ( StringUtils.isBlank( strProdUrl ) )
+        {
+            strProdUrl = AppPathService.getProdUrl( strBaseUrl );
+        }
+
+        return new FormsUrlContext( strBaseUrl, strProdUrl + AppPathService.getPortalUrl( ) );
+    }
+
+    /**
+     * @return the base URL of the webapp
+     */
+    public String getBaseUrl( )
+    {
+        return _strBaseUrl;
+    }
+
+    /**
+     * @return the production URL of the portal
+     */
+    public String getProdPortalUrl( )
+    {
+        return _strProdPortalUrl;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManager;
+import fr.paris.lutece.portal.business.file.File;
+
+/**
+ * This interface represents the source of the data read by the providers: the form responses, their question responses and files, the questions of
+ * the forms and the mappings.
+ */
+public interface IProviderDataSource
+{
+    /**
+     * Loads a form response
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @return the form response, or {@code null} if it does not exist
+     */
+    FormResponse findFormResponse( int nIdFormResponse );
+
+    /**
+     * Loads several form responses at once
+     *
+     * @param collectionIdFormResponse
+     *            the ids of the form responses
+     * @return the form responses, keyed by form response id. The form responses which do not exist are missing.
+     */
+    Map<Integer, FormResponse> findFormResponses( Collection<Integer> collectionIdFormResponse );
+
+    /**
+     * Loads the question responses of a form response
+     *
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @return the question responses
+     */
+    List<FormQuestionResponse> findFormQuestionResponses( int nIdFormResponse );
+
+    /**
+     * Loads the question responses of several form responses at once, with their questions and entries
+     *
+     * @param collectionFormResponse
+     *            the form responses
+     * @return the question responses, keyed by form response id. The form responses without question responses are missing.
+     */
+    Map<Integer, List<FormQuestionResponse>> findFormQuestionResponses( Collection<FormResponse> collectionFormResponse );
+
+    /**
+     * Loads the question responses of a form response to the specified questions, with their questions and entries
+     *
+     * @param formResponse
+     *            the form response
+     * @param collectionIdQuestion
+     *            the ids of the questions
+     * @return the question responses
+     */
+    List<FormQuestionResponse> findFormQuestionResponses( FormResponse formResponse, Collection<Integer> collectionIdQuestion );
+
+    /**
+     * Reads the question responses of a form response page by page, with their questions and entries. Each page is given to the consumer before the
+     * next one is read, so only one page is held by the data source at a time.
+     *
+     * @param formResponse
+     *            the form response
+     * @param nPageSize
+     *            the maximum number of question responses of a page
+     * @param consumer
+     *            the consumer of the pages
+     */
+    void readFormQuestionResponsePages( FormResponse formResponse, int nPageSize, Consumer<List<FormQuestionResponse>> consumer );
+
+    /**
+     * Loads the metadata of the specified files, without their content
+     *
+     * @param collectionIdFile
+     *            the file ids
+     * @return the metadata of the files, keyed by file id
+     */
+    Map<Integer, File> findFileMetadata( Collection<Integer> collectionIdFile );
+
+    /**
+     * Loads the questions of a form, with their entries
+     *
+     * @param nIdForm
+     *            the form id
+     * @return the questions
+     */
+    List<Question> findQuestionsByForm( int nIdForm );
+
+    /**
+     * Loads the mapping of a provider
+     *
+     * @param strCompleteProviderId
+     *            the complete provider id
+     * @return the mapping, or {@code null} if there is no mapping for this provider
+     */
+    NotifygruMappingManager findMapping( String strCompleteProviderId );
+}
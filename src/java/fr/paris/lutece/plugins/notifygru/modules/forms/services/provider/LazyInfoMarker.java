@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.function.Supplier;
+
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+
+/**
+ * This class represents an {@link InfoMarker} whose value is computed on the first call to {@link #getValue()}
+ */
+public class LazyInfoMarker extends InfoMarker
+{
+    private Supplier<String> _valueSupplier;
+
+    /**
+     * Constructor
+     *
+     * @param strMarker
+     *            the marker name
+     * @param valueSupplier
+     *            the supplier computing the value of the marker
+     */
+    public LazyInfoMarker( String strMarker, Supplier<String> valueSupplier )
+    {
+        super( strMarker );
+        _valueSupplier = valueSupplier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String getValue( )
+    {
+        if ( _valueSupplier != null )
+        {
+            super.setValue( _valueSupplier.get( ) );
+            _valueSupplier = null;
+        }
+
+        return super.getValue( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setValue( String strValue )
+    {
+        _valueSupplier = null;
+        super.setValue( strValue );
+    }
+
+    /**
+     * Tests if the value of the marker has been computed
+     *
+     * @return {@code true} if the value has been computed, {@code false} otherwise
+     */
+    public synchronized boolean isComputed( )
+    {
+        return _valueSupplier == null;
+    }
+}
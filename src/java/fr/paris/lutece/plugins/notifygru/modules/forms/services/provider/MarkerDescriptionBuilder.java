@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import fr.paris.lutece.plugins.forms.business.Form;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.FormQuestionSummary;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.FormQuestionIndexCacheService;
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class builds the marker descriptions of the providers for several forms
+ */
+public final class MarkerDescriptionBuilder
+{
+    // Properties
+    private static final String PROPERTY_PARALLEL_THRESHOLD = "notifygru-forms.markers.parallelThreshold";
+    private static final String PROPERTY_PARALLELISM = "notifygru-forms.markers.parallelism";
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 100;
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    private static ForkJoinPool _forkJoinPool;
+
+    /**
+     * Private constructor
+     */
+    private MarkerDescriptionBuilder( )
+    {
+    }
+
+    /**
+     * Builds the marker descriptions of the specified forms. The questions of all the forms are read from the shared question index, and the markers
+     * are deduplicated by question code, the first question having a given code being kept.
+     * <p>
+     * When the number of forms reaches the property {@code notifygru-forms.markers.parallelThreshold}, the forms are merged in parallel on a fork-join
+     * pool whose parallelism is capped by the property {@code notifygru-forms.markers.parallelism}. The result is the same as the sequential merge.
+     * </p>
+     *
+     * @param listForms
+     *            the forms
+     * @param locale
+     *            the locale of the descriptions of the markers related to the form response
+     * @return the marker descriptions
+     */
+    public static List<InfoMarker> buildMarkerDescriptions( List<Form> listForms, Locale locale )
+    {
+        List<Integer> listIdForms = new ArrayList<>( listForms.size( ) );
+
+        for ( Form form : listForms )
+        {
+            listIdForms.add( form.getId( ) );
+        }
+
+        Map<Integer, List<FormQuestionSummary>> mapQuestionsByForm = FormQuestionIndexCacheService.getInstance( ).getQuestionsByForms( listIdForms );
+        List<List<FormQuestionSummary>> listQuestionsByFormIndex = new ArrayList<>( listForms.size( ) );
+
+        for ( Form form : listForms )
+        {
+            listQuestionsByFormIndex.add( mapQuestionsByForm.getOrDefault( form.getId( ), Collections.emptyList( ) ) );
+        }
+
+        int nParallelThreshold = AppPropertiesService.getPropertyInt( PROPERTY_PARALLEL_THRESHOLD, DEFAULT_PARALLEL_THRESHOLD );
+        List<InfoMarker> listNotifyMarkers = ( nParallelThreshold > 0 && listForms.size( ) >= nParallelThreshold )
+                ? mergeQuestionsInParallel( listQuestionsByFormIndex, getForkJoinPool( ) )
+                : mergeQuestions( listQuestionsByFormIndex );
+        addResponseMarkerDescriptions( listNotifyMarkers, locale );
+
+        return listNotifyMarkers;
+    }
+
+    /**
+     * Merges the questions of the forms sequentially. The questions without code are ignored.
+     *
+     * @param listQuestionsByFormIndex
+     *            the questions of each form, in the order of the forms
+     * @return the marker descriptions of the questions
+     */
+    static List<InfoMarker> mergeQuestions( List<List<FormQuestionSummary>> listQuestionsByFormIndex )
+    {
+        Map<String, InfoMarker> mapNotifyMarkers = new LinkedHashMap<>( );
+
+        for ( List<FormQuestionSummary> listQuestions : listQuestionsByFormIndex )
+        {
+            for ( FormQuestionSummary question : listQuestions )
+            {
+                if ( question.getCode( ) == null )
+                {
+                    continue;
+                }
+
+                mapNotifyMarkers.computeIfAbsent( question.getCode( ), strCode -> createQuestionMarkerDescription( question ) );
+            }
+        }
+
+        return new ArrayList<>( mapNotifyMarkers.values( ) );
+    }
+
+    /**
+     * Merges the questions of the forms in parallel. Each question is ranked by the index of its form and its index in the form. For each code, the
+     * question with the lowest rank is kept in a concurrent map, and the kept questions are sorted by rank, so the result does not depend on the
+     * scheduling of the tasks. The questions without code are ignored.
+     *
+     * @param listQuestionsByFormIndex
+     *            the questions of each form, in the order of the forms
+     * @param forkJoinPool
+     *            the pool running the merge
+     * @return the marker descriptions of the questions
+     */
+    static List<InfoMarker> mergeQuestionsInParallel( List<List<FormQuestionSummary>> listQuestionsByFormIndex, ForkJoinPool forkJoinPool )
+    {
+        ConcurrentMap<String, RankedQuestion> mapQuestionsByCode = new ConcurrentHashMap<>( );
+        forkJoinPool.invoke( new MergeTask( listQuestionsByFormIndex, mapQuestionsByCode, 0, listQuestionsByFormIndex.size( ) ) );
+
+        List<RankedQuestion> listRankedQuestions = new ArrayList<>( mapQuestionsByCode.values( ) );
+        listRankedQuestions.sort( Comparator.comparingLong( RankedQuestion::getRank ) );
+
+        List<InfoMarker> listNotifyMarkers = new ArrayList<>( listRankedQuestions.size( ) );
+
+        for ( RankedQuestion rankedQuestion : listRankedQuestions )
+        {
+            listNotifyMarkers.add( createQuestionMarkerDescription( rankedQuestion.getQuestion( ) ) );
+        }
+
+        return listNotifyMarkers;
+    }
+
+    /**
+     * Gives the fork-join pool used to merge the questions in parallel
+     *
+     * @return the fork-join pool
+     */
+    private static synchronized ForkJoinPool getForkJoinPool( )
+    {
+        if ( _forkJoinPool == null )
+        {
+            int nParallelism = AppPropertiesService.getPropertyInt( PROPERTY_PARALLELISM, Math.min( DEFAULT_PARALLELISM, Runtime.getRuntime( ).availableProcessors( ) ) );
+            _forkJoinPool = new ForkJoinPool( Math.max( 1, nParallelism ) );
+        }
+
+        return _forkJoinPool;
+    }
+
+    /**
+     * Shuts down the fork-join pool used to merge the questions in parallel. It is created again if needed.
+     */
+    public static synchronized void shutdown( )
+    {
+        if ( _forkJoinPool != null )
+        {
+            _forkJoinPool.shutdown( );
+            _forkJoinPool = null;
+        }
+    }
+
+    /**
+     * Creates the marker description of a question
+     *
+     * @param question
+     *            the question
+     * @return the marker description
+     */
+    private static InfoMarker createQuestionMarkerDescription( FormQuestionSummary question )
+    {
+        InfoMarker notifyMarker = new InfoMarker( question.getCode( ) );
+        notifyMarker.setDescription( question.getColumnTitle( ) );
+
+        return notifyMarker;
+    }
+
+    /**
+     * Adds the descriptions of the markers related to the form response itself
+     *
+     * @param listNotifyMarkers
+     *            the list of the marker descriptions
+     * @param locale
+     *            the locale of the descriptions
+     */
+    private static void addResponseMarkerDescriptions( List<InfoMarker> listNotifyMarkers, Locale locale )
+    {
+        listNotifyMarkers.add( createMarkerDescription( Constants.MARK_URL_ADMIN_RESPONSE, Constants.MESSAGE_DESCRIPTION, locale ) );
+        listNotifyMarkers.add( createMarkerDescription( Constants.MARK_CREATION_DATE, Constants.MESSAGE_CREATION_DATE, locale ) );
+        listNotifyMarkers.add( createMarkerDescription( Constants.MARK_CREATION_TIME, Constants.MESSAGE_CREATION_TIME, locale ) );
+        listNotifyMarkers.add( createMarkerDescription( Constants.MARK_UPDATE_DATE, Constants.MESSAGE_UPDATE_DATE, locale ) );
+        listNotifyMarkers.add( createMarkerDescription( Constants.MARK_UPDATE_TIME, Constants.MESSAGE_UPDATE_TIME, locale ) );
+    }
+
+    /**
+     * Creates a marker description
+     *
+     * @param strMarker
+     *            the marker name
+     * @param strDescriptionKey
+     *            the i18n key of the description
+     * @param locale
+     *            the locale of the description
+     * @return the marker description
+     */
+    private static InfoMarker createMarkerDescription( String strMarker, String strDescriptionKey, Locale locale )
+    {
+        InfoMarker notifyMarker = new InfoMarker( strMarker );
+        notifyMarker.setDescription( I18nService.getLocalizedString( strDescriptionKey, locale ) );
+
+        return notifyMarker;
+    }
+
+    /**
+     * Question ranked by the index of its form and its index in the form
+     */
+    private static final class RankedQuestion
+    {
+        private final long _lRank;
+        private final FormQuestionSummary _question;
+
+        /**
+         * Constructor
+         *
+         * @param lRank
+         *            the rank
+         * @param question
+         *            the question
+         */
+        RankedQuestion( long lRank, FormQuestionSummary question )
+        {
+            _lRank = lRank;
+            _question = question;
+        }
+
+        /**
+         * @return the rank
+         */
+        long getRank( )
+        {
+            return _lRank;
+        }
+
+        /**
+         * @return the question
+         */
+        FormQuestionSummary getQuestion( )
+        {
+            return _question;
+        }
+    }
+
+    /**
+     * Task merging the questions of a range of forms. The range is split until it is small enough to be merged directly.
+     */
+    private static final class MergeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int SEQUENTIAL_THRESHOLD = 16;
+        private static final int RANK_SHIFT = 32;
+
+        private final transient List<List<FormQuestionSummary>> _listQuestionsByFormIndex;
+        private final transient ConcurrentMap<String, RankedQuestion> _mapQuestionsByCode;
+        private final int _nStart;
+        private final int _nEnd;
+
+        /**
+         * Constructor
+         *
+         * @param listQuestionsByFormIndex
+         *            the questions of each form
+         * @param mapQuestionsByCode
+         *            the questions kept for each code
+         * @param nStart
+         *            the index of the first form of the range
+         * @param nEnd
+         *            the index following the last form of the range
+         */
+        MergeTask( List<List<FormQuestionSummary>> listQuestionsByFormIndex, ConcurrentMap<String, RankedQuestion> mapQuestionsByCode, int nStart,
+                int nEnd )
+        {
+            _listQuestionsByFormIndex = listQuestionsByFormIndex;
+            _mapQuestionsByCode = mapQuestionsByCode;
+            _nStart = nStart;
+            _nEnd = nEnd;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute( )
+        {
+            if ( _nEnd - _nStart <= SEQUENTIAL_THRESHOLD )
+            {
+                for ( int nFormIndex = _nStart; nFormIndex < _nEnd; nFormIndex++ )
+                {
+                    List<FormQuestionSummary> listQuestions = _listQuestionsByFormIndex.get( nFormIndex );
+
+                    for ( int nQuestionIndex = 0; nQuestionIndex < listQuestions.size( ); nQuestionIndex++ )
+                    {
+                        FormQuestionSummary question = listQuestions.get( nQuestionIndex );
+
+                        if ( question.getCode( ) == null )
+                        {
+                            continue;
+                        }
+
+                        RankedQuestion rankedQuestion = new RankedQuestion( ( (long) nFormIndex << RANK_SHIFT ) | nQuestionIndex, question );
+                        _mapQuestionsByCode.merge( question.getCode( ), rankedQuestion,
+                                ( current, candidate ) -> ( candidate.getRank( ) < current.getRank( ) ) ? candidate : current );
+                    }
+                }
+
+                return;
+            }
+
+            int nMiddle = ( _nStart + _nEnd ) >>> 1;
+            invokeAll( new MergeTask( _listQuestionsByFormIndex, _mapQuestionsByCode, _nStart, nMiddle ),
+                    new MergeTask( _listQuestionsByFormIndex, _mapQuestionsByCode, nMiddle, _nEnd ) );
+        }
+    }
+}
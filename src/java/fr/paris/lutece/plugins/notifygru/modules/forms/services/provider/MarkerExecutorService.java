@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class provides the executor used to compute the markers asynchronously.
+ * <p>
+ * By default, the executor is a bounded thread pool. When the queue is full, the tasks are run by the calling thread. If the property
+ * {@code notifygru-forms.async.virtualThreads} is enabled and the JVM supports virtual threads, one virtual thread is used per task instead.
+ * </p>
+ */
+public final class MarkerExecutorService
+{
+    // Properties
+    private static final String PROPERTY_POOL_SIZE = "notifygru-forms.async.poolSize";
+    private static final String PROPERTY_QUEUE_CAPACITY = "notifygru-forms.async.queueCapacity";
+    private static final String PROPERTY_VIRTUAL_THREADS = "notifygru-forms.async.virtualThreads";
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private static final String THREAD_NAME_PREFIX = "notifygru-forms-markers-";
+    private static final String METHOD_NEW_VIRTUAL_THREAD_EXECUTOR = "newVirtualThreadPerTaskExecutor";
+
+    private static ExecutorService _executor;
+
+    /**
+     * Private constructor
+     */
+    private MarkerExecutorService( )
+    {
+    }
+
+    /**
+     * Gives the executor used to compute the markers
+     *
+     * @return the executor
+     */
+    public static synchronized ExecutorService getExecutor( )
+    {
+        if ( _executor == null )
+        {
+            _executor = createExecutor( );
+        }
+
+        return _executor;
+    }
+
+    /**
+     * Shuts down the executor used to compute the markers. It is created again if needed.
+     */
+    public static synchronized void shutdown( )
+    {
+        if ( _executor != null )
+        {
+            _executor.shutdown( );
+            _executor = null;
+        }
+    }
+
+    /**
+     * Creates the executor from the configuration
+     *
+     * @return the executor
+     */
+    private static ExecutorService createExecutor( )
+    {
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_VIRTUAL_THREADS, false ) )
+        {
+            try
+            {
+                return (ExecutorService) Executors.class.getMethod( METHOD_NEW_VIRTUAL_THREAD_EXECUTOR ).invoke( null );
+            }
+            catch( ReflectiveOperationException e )
+            {
+                AppLogService.info( "Virtual threads are not supported by this JVM, a thread pool is used to compute the markers" );
+            }
+        }
+
+        int nPoolSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_POOL_SIZE, DEFAULT_POOL_SIZE ) );
+        int nQueueCapacity = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY ) );
+        AtomicInteger nThreadNumber = new AtomicInteger( );
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + nThreadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        };
+
+        return new ThreadPoolExecutor( nPoolSize, nPoolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( nQueueCapacity ), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy( ) );
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.function.Supplier;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class represents the limits applied to the markers of a provider: the maximum length of a marker value and the maximum number of question
+ * markers.
+ * <p>
+ * The limits are read from the properties {@code notifygru-forms.markers.maxValueLength}, {@code notifygru-forms.markers.maxCount} and
+ * {@code notifygru-forms.markers.truncation}, which can be overridden for a provider with the properties
+ * {@code notifygru-forms.markers.<provider id>.maxValueLength}, etc. A limit of 0 means no limit.
+ * </p>
+ */
+public final class MarkerLimits
+{
+    /**
+     * The truncation policies of the values exceeding the maximum length
+     */
+    public enum TruncationPolicy
+    {
+        /** The value is cut at the maximum length, for SMS */
+        CUT,
+        /** The value is cut at the maximum length and followed by an ellipsis and the link to the form response in front office, for emails */
+        ELLIPSIS
+    }
+
+    public static final MarkerLimits UNLIMITED = new MarkerLimits( 0, 0, TruncationPolicy.CUT );
+
+    // Properties
+    private static final String PROPERTY_PREFIX = "notifygru-forms.markers.";
+    private static final String PROPERTY_MAX_VALUE_LENGTH = "maxValueLength";
+    private static final String PROPERTY_MAX_COUNT = "maxCount";
+    private static final String PROPERTY_TRUNCATION = "truncation";
+    private static final String PROPERTY_SEPARATOR = ".";
+
+    private static final String ELLIPSIS = "... ";
+
+    private final int _nMaxValueLength;
+    private final int _nMaxMarkerCount;
+    private final TruncationPolicy _truncationPolicy;
+
+    /**
+     * Constructor
+     *
+     * @param nMaxValueLength
+     *            the maximum length of a marker value, or 0 for no limit
+     * @param nMaxMarkerCount
+     *            the maximum number of question markers, or 0 for no limit
+     * @param truncationPolicy
+     *            the truncation policy of the values exceeding the maximum length
+     */
+    public MarkerLimits( int nMaxValueLength, int nMaxMarkerCount, TruncationPolicy truncationPolicy )
+    {
+        _nMaxValueLength = Math.max( 0, nMaxValueLength );
+        _nMaxMarkerCount = Math.max( 0, nMaxMarkerCount );
+        _truncationPolicy = truncationPolicy;
+    }
+
+    /**
+     * Gives the limits configured for the specified provider
+     *
+     * @param strProviderId
+     *            the provider id
+     * @return the limits
+     */
+    public static MarkerLimits forProvider( String strProviderId )
+    {
+        String strProviderPrefix = PROPERTY_PREFIX + strProviderId + PROPERTY_SEPARATOR;
+        int nMaxValueLength = AppPropertiesService.getPropertyInt( strProviderPrefix + PROPERTY_MAX_VALUE_LENGTH,
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + PROPERTY_MAX_VALUE_LENGTH, 0 ) );
+        int nMaxMarkerCount = AppPropertiesService.getPropertyInt( strProviderPrefix + PROPERTY_MAX_COUNT,
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + PROPERTY_MAX_COUNT, 0 ) );
+
+        if ( nMaxValueLength <= 0 && nMaxMarkerCount <= 0 )
+        {
+            return UNLIMITED;
+        }
+
+        String strTruncation = AppPropertiesService.getProperty( strProviderPrefix + PROPERTY_TRUNCATION,
+                AppPropertiesService.getProperty( PROPERTY_PREFIX + PROPERTY_TRUNCATION, TruncationPolicy.CUT.name( ) ) );
+        TruncationPolicy truncationPolicy = TruncationPolicy.ELLIPSIS.name( ).equalsIgnoreCase( strTruncation ) ? TruncationPolicy.ELLIPSIS
+                : TruncationPolicy.CUT;
+
+        return new MarkerLimits( nMaxValueLength, nMaxMarkerCount, truncationPolicy );
+    }
+
+    /**
+     * @return the maximum length of a marker value, or 0 for no limit
+     */
+    public int getMaxValueLength( )
+    {
+        return _nMaxValueLength;
+    }
+
+    /**
+     * @return the maximum number of question markers, or 0 for no limit
+     */
+    public int getMaxMarkerCount( )
+    {
+        return _nMaxMarkerCount;
+    }
+
+    /**
+     * @return the truncation policy of the values exceeding the maximum length
+     */
+    public TruncationPolicy getTruncationPolicy( )
+    {
+        return _truncationPolicy;
+    }
+
+    /**
+     * Tests if the specified number of question markers reaches the limit
+     *
+     * @param nMarkerCount
+     *            the number of question markers
+     * @return {@code true} if no more question marker can be provided, {@code false} otherwise
+     */
+    public boolean isMarkerCountReached( int nMarkerCount )
+    {
+        return _nMaxMarkerCount > 0 && nMarkerCount >= _nMaxMarkerCount;
+    }
+
+    /**
+     * Creates a builder of marker value. The builder keeps one character more than the maximum length, so that {@link #truncate(String, Supplier)} can
+     * detect the values exceeding the limit without building them completely.
+     *
+     * @return the builder
+     */
+    public MarkerValueBuilder newValueBuilder( )
+    {
+        return new MarkerValueBuilder( ( _nMaxValueLength > 0 ) ? _nMaxValueLength + 1 : 0 );
+    }
+
+    /**
+     * Truncates the specified value according to the truncation policy if it exceeds the maximum length
+     *
+     * @param strValue
+     *            the value
+     * @param linkSupplier
+     *            the supplier of the link to the form response in front office, used by the {@link TruncationPolicy#ELLIPSIS} policy
+     * @return the value, truncated if needed
+     */
+    public String truncate( String strValue, Supplier<String> linkSupplier )
+    {
+        if ( _nMaxValueLength <= 0 || strValue == null || strValue.length( ) <= _nMaxValueLength )
+        {
+            return strValue;
+        }
+
+        int nEnd = _nMaxValueLength;
+
+        // Do not split a surrogate pair
+        if ( Character.isHighSurrogate( strValue.charAt( nEnd - 1 ) ) )
+        {
+            nEnd--;
+        }
+
+        if ( _truncationPolicy == TruncationPolicy.ELLIPSIS )
+        {
+            String strLink = linkSupplier.get( );
+
+            return new StringBuilder( nEnd + ELLIPSIS.length( ) + strLink.length( ) ).append( strValue, 0, nEnd ).append( ELLIPSIS ).append( strLink )
+                    .toString( );
+        }
+
+        return strValue.substring( 0, nEnd );
+    }
+}
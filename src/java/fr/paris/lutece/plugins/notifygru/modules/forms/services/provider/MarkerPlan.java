@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import fr.paris.lutece.plugins.forms.business.Question;
+
+/**
+ * This class represents the compiled markers of the questions of a form, for a kind of provider. It is immutable and can be shared between providers.
+ */
+public final class MarkerPlan
+{
+    private final int _nIdForm;
+    private final boolean _bAllForms;
+    private final Map<Integer, QuestionMarker> _mapQuestionMarkers;
+
+    /**
+     * Constructor
+     *
+     * @param nIdForm
+     *            the form id
+     * @param bAllForms
+     *            {@code true} if the plan is used by a provider for all the forms of a workflow
+     * @param mapQuestionMarkers
+     *            the compiled markers, keyed by question id
+     */
+    private MarkerPlan( int nIdForm, boolean bAllForms, Map<Integer, QuestionMarker> mapQuestionMarkers )
+    {
+        _nIdForm = nIdForm;
+        _bAllForms = bAllForms;
+        _mapQuestionMarkers = Collections.unmodifiableMap( mapQuestionMarkers );
+    }
+
+    /**
+     * Compiles the plan of the specified form
+     *
+     * @param strProviderId
+     *            the provider id
+     * @param nIdForm
+     *            the form id
+     * @return the compiled plan
+     */
+    public static MarkerPlan compile( String strProviderId, int nIdForm )
+    {
+        boolean bAllForms = isAllFormsProvider( strProviderId );
+        List<Question> listQuestions = ProviderDataSourceService.getDataSource( ).findQuestionsByForm( nIdForm );
+        Map<Integer, QuestionMarker> mapQuestionMarkers = new HashMap<>( listQuestions.size( ) * 2 );
+
+        for ( Question question : listQuestions )
+        {
+            mapQuestionMarkers.put( question.getId( ), QuestionMarker.compile( question, bAllForms ) );
+        }
+
+        return new MarkerPlan( nIdForm, bAllForms, mapQuestionMarkers );
+    }
+
+    /**
+     * Tests if the specified provider is a provider for all the forms of a workflow
+     *
+     * @param strProviderId
+     *            the provider id
+     * @return {@code true} if the provider is a provider for all the forms of a workflow, {@code false} otherwise
+     */
+    public static boolean isAllFormsProvider( String strProviderId )
+    {
+        return strProviderId.startsWith( Constants.ALL_FORMS );
+    }
+
+    /**
+     * Gives the form id
+     *
+     * @return the form id
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Tests if the plan is used by a provider for all the forms of a workflow
+     *
+     * @return {@code true} if the markers are named after the question codes, {@code false} if they are named after the question ids
+     */
+    public boolean isAllForms( )
+    {
+        return _bAllForms;
+    }
+
+    /**
+     * Gives the compiled marker of the specified question
+     *
+     * @param question
+     *            the question
+     * @return the compiled marker, or {@code null} if the question is not in the plan or has changed since the plan was compiled
+     */
+    public QuestionMarker getQuestionMarker( Question question )
+    {
+        QuestionMarker questionMarker = _mapQuestionMarkers.get( question.getId( ) );
+
+        if ( questionMarker == null || ( _bAllForms && !Objects.equals( questionMarker.getCode( ), question.getCode( ) ) ) )
+        {
+            return null;
+        }
+
+        return questionMarker;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+
+/**
+ * This class represents the last values rendered for the question responses of a form response, with a content hash of each question response.
+ * <p>
+ * A value is reused when the hash of the question response has not changed since it was rendered. The values are the raw values of the questions,
+ * before the limits of the markers are applied, so a snapshot can be reused by providers having different limits. Only the values which do not
+ * contain download URLs are kept, since these URLs may be signed or limited in time.
+ * </p>
+ */
+public final class MarkerSnapshot implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int ITERATION_BITS = 32;
+    private static final long ITERATION_MASK = 0xFFFFFFFFL;
+
+    private final long _lContentHash;
+    private final Map<Long, Entry> _mapEntries;
+
+    /**
+     * Constructor
+     *
+     * @param lContentHash
+     *            the hash of all the question responses
+     * @param mapEntries
+     *            the entries, keyed by question and iteration
+     */
+    private MarkerSnapshot( long lContentHash, Map<Long, Entry> mapEntries )
+    {
+        _lContentHash = lContentHash;
+        _mapEntries = mapEntries;
+    }
+
+    /**
+     * @return the hash of all the question responses of the snapshot
+     */
+    public long getContentHash( )
+    {
+        return _lContentHash;
+    }
+
+    /**
+     * @return the number of values of the snapshot
+     */
+    public int size( )
+    {
+        return _mapEntries.size( );
+    }
+
+    /**
+     * Gives the value rendered for the specified question response, if the question response has not changed
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @param nIterationNumber
+     *            the iteration number
+     * @param lHash
+     *            the current hash of the question response
+     * @return the value, or {@code null} if the question response has changed or was not rendered
+     */
+    public String getValue( int nIdQuestion, int nIterationNumber, long lHash )
+    {
+        Entry entry = _mapEntries.get( getKey( nIdQuestion, nIterationNumber ) );
+
+        return ( entry != null && entry._lHash == lHash ) ? entry._strValue : null;
+    }
+
+    /**
+     * Tests if the values of the specified question can be kept in a snapshot. The values containing download URLs are not kept.
+     *
+     * @param questionMarker
+     *            the compiled marker of the question
+     * @return {@code true} if the values can be kept, {@code false} otherwise
+     */
+    public static boolean isSnapshotValue( QuestionMarker questionMarker )
+    {
+        return questionMarker.getValueKind( ) == QuestionMarker.ValueKind.RECAP;
+    }
+
+    /**
+     * Computes the content hash of a question response. The hash covers the kind of value and, for each response, the field, the file and the value.
+     *
+     * @param formQuestionResponse
+     *            the question response
+     * @param questionMarker
+     *            the compiled marker of the question
+     * @return the hash
+     */
+    public static long hash( FormQuestionResponse formQuestionResponse, QuestionMarker questionMarker )
+    {
+        long lHash = hash( FNV_OFFSET_BASIS, questionMarker.getValueKind( ).ordinal( ) );
+
+        if ( formQuestionResponse.getEntryResponse( ) != null )
+        {
+            for ( Response response : formQuestionResponse.getEntryResponse( ) )
+            {
+                lHash = hash( lHash, ( response.getField( ) != null ) ? response.getField( ).getIdField( ) : -1 );
+                lHash = hash( lHash, ( response.getFile( ) != null ) ? response.getFile( ).getIdFile( ) : -1 );
+                lHash = hash( lHash, response.getResponseValue( ) );
+            }
+        }
+
+        return lHash;
+    }
+
+    /**
+     * Adds an integer to a FNV-1a hash
+     *
+     * @param lHash
+     *            the hash
+     * @param nValue
+     *            the integer
+     * @return the new hash
+     */
+    private static long hash( long lHash, int nValue )
+    {
+        long lResult = lHash;
+
+        for ( int nShift = 0; nShift < Integer.SIZE; nShift += Byte.SIZE )
+        {
+            lResult = ( lResult ^ ( ( nValue >>> nShift ) & 0xFF ) ) * FNV_PRIME;
+        }
+
+        return lResult;
+    }
+
+    /**
+     * Adds a string to a FNV-1a hash
+     *
+     * @param lHash
+     *            the hash
+     * @param strValue
+     *            the string, which may be {@code null}
+     * @return the new hash
+     */
+    private static long hash( long lHash, String strValue )
+    {
+        if ( strValue == null )
+        {
+            return hash( lHash, -1 );
+        }
+
+        long lResult = hash( lHash, strValue.length( ) );
+
+        for ( int i = 0; i < strValue.length( ); i++ )
+        {
+            lResult = ( lResult ^ strValue.charAt( i ) ) * FNV_PRIME;
+        }
+
+        return lResult;
+    }
+
+    /**
+     * Builds the key of a question response
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @param nIterationNumber
+     *            the iteration number
+     * @return the key
+     */
+    private static long getKey( int nIdQuestion, int nIterationNumber )
+    {
+        return ( (long) nIdQuestion << ITERATION_BITS ) | ( nIterationNumber & ITERATION_MASK );
+    }
+
+    /**
+     * Value rendered for a question response
+     */
+    private static final class Entry implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long _lHash;
+        private final String _strValue;
+
+        /**
+         * Constructor
+         *
+         * @param lHash
+         *            the hash of the question response
+         * @param strValue
+         *            the value
+         */
+        Entry( long lHash, String strValue )
+        {
+            _lHash = lHash;
+            _strValue = strValue;
+        }
+    }
+
+    /**
+     * Builder of a snapshot, filled while the markers are generated. Only the values which have been computed when the snapshot is built are kept.
+     */
+    static final class Builder
+    {
+        private final Map<Long, PendingValue> _mapValues = new LinkedHashMap<>( );
+        private long _lContentHash = FNV_OFFSET_BASIS;
+
+        /**
+         * Adds the value of a question response
+         *
+         * @param nIdQuestion
+         *            the question id
+         * @param nIterationNumber
+         *            the iteration number
+         * @param lHash
+         *            the hash of the question response
+         * @param value
+         *            the value
+         */
+        synchronized void add( int nIdQuestion, int nIterationNumber, long lHash, MemoizedValue value )
+        {
+            _mapValues.put( getKey( nIdQuestion, nIterationNumber ), new PendingValue( lHash, value ) );
+            _lContentHash = ( _lContentHash ^ lHash ) * FNV_PRIME;
+        }
+
+        /**
+         * Keeps the value of a question response which is not rendered this time, if it has not changed since the previous snapshot
+         *
+         * @param previousSnapshot
+         *            the previous snapshot, which may be {@code null}
+         * @param nIdQuestion
+         *            the question id
+         * @param nIterationNumber
+         *            the iteration number
+         * @param lHash
+         *            the hash of the question response
+         */
+        void carry( MarkerSnapshot previousSnapshot, int nIdQuestion, int nIterationNumber, long lHash )
+        {
+            String strValue = ( previousSnapshot != null ) ? previousSnapshot.getValue( nIdQuestion, nIterationNumber, lHash ) : null;
+
+            if ( strValue != null )
+            {
+                add( nIdQuestion, nIterationNumber, lHash, MemoizedValue.of( strValue ) );
+            }
+        }
+
+        /**
+         * Builds the snapshot
+         *
+         * @return the snapshot
+         */
+        synchronized MarkerSnapshot build( )
+        {
+            Map<Long, Entry> mapEntries = new HashMap<>( );
+
+            for ( Map.Entry<Long, PendingValue> value : _mapValues.entrySet( ) )
+            {
+                PendingValue pendingValue = value.getValue( );
+
+                if ( pendingValue._value.isComputed( ) )
+                {
+                    mapEntries.put( value.getKey( ), new Entry( pendingValue._lHash, pendingValue._value.get( ) ) );
+                }
+            }
+
+            return new MarkerSnapshot( _lContentHash, mapEntries );
+        }
+    }
+
+    /**
+     * Value of a question response which may not be computed yet
+     */
+    private static final class PendingValue
+    {
+        private final long _lHash;
+        private final MemoizedValue _value;
+
+        /**
+         * Constructor
+         *
+         * @param lHash
+         *            the hash of the question response
+         * @param value
+         *            the value
+         */
+        PendingValue( long lHash, MemoizedValue value )
+        {
+            _lHash = lHash;
+            _value = value;
+        }
+    }
+}
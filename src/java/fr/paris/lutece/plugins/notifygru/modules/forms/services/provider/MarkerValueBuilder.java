@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+/**
+ * This class builds a marker value up to a capacity. The parts appended once the capacity is reached are ignored, so an oversized value is never
+ * built completely.
+ */
+public final class MarkerValueBuilder
+{
+    private final int _nCapacity;
+    private final StringBuilder _sbValue = new StringBuilder( );
+    private boolean _bFull;
+
+    /**
+     * Constructor
+     *
+     * @param nCapacity
+     *            the capacity, or 0 for no limit
+     */
+    MarkerValueBuilder( int nCapacity )
+    {
+        _nCapacity = nCapacity;
+    }
+
+    /**
+     * Appends a part of the value
+     *
+     * @param strPart
+     *            the part
+     * @return {@code true} if more parts can be appended, {@code false} if the capacity is reached
+     */
+    public boolean append( String strPart )
+    {
+        if ( _bFull )
+        {
+            return false;
+        }
+
+        if ( _nCapacity <= 0 )
+        {
+            _sbValue.append( strPart );
+            return true;
+        }
+
+        String strValue = String.valueOf( strPart );
+        int nRemaining = _nCapacity - _sbValue.length( );
+
+        if ( strValue.length( ) < nRemaining )
+        {
+            _sbValue.append( strValue );
+            return true;
+        }
+
+        _sbValue.append( strValue, 0, nRemaining );
+        _bFull = true;
+
+        return false;
+    }
+
+    /**
+     * @return the length of the value
+     */
+    public int length( )
+    {
+        return _sbValue.length( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( )
+    {
+        return _sbValue.toString( );
+    }
+}
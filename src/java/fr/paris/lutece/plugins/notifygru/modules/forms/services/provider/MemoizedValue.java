@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.function.Supplier;
+
+/**
+ * Value computed at most once, on the first call to {@link #get()}
+ */
+final class MemoizedValue implements Supplier<String>
+{
+    private Supplier<String> _valueSupplier;
+    private String _strValue;
+
+    /**
+     * Constructor
+     *
+     * @param valueSupplier
+     *            the supplier computing the value
+     */
+    MemoizedValue( Supplier<String> valueSupplier )
+    {
+        _valueSupplier = valueSupplier;
+    }
+
+    /**
+     * Creates a value which is already computed
+     *
+     * @param strValue
+     *            the value
+     * @return the memoized value
+     */
+    static MemoizedValue of( String strValue )
+    {
+        MemoizedValue value = new MemoizedValue( null );
+        value._strValue = strValue;
+
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String get( )
+    {
+        if ( _valueSupplier != null )
+        {
+            _strValue = _valueSupplier.get( );
+            _valueSupplier = null;
+        }
+
+        return _strValue;
+    }
+
+    /**
+     * Tests if the value has been computed
+     *
+     * @return {@code true} if the value has been computed, {@code false} otherwise
+     */
+    synchronized boolean isComputed( )
+    {
+        return _valueSupplier == null;
+    }
+}
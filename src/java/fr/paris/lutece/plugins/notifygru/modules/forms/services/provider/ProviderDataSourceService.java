@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class gives access to the source of the data read by the providers, declared in the Spring context as
+ * {@code notifygru-forms.providerDataSource}
+ */
+public final class ProviderDataSourceService
+{
+    private static final String BEAN_DATA_SOURCE = "notifygru-forms.providerDataSource";
+
+    private static IProviderDataSource _dataSource;
+
+    /**
+     * Private constructor
+     */
+    private ProviderDataSourceService( )
+    {
+    }
+
+    /**
+     * Gives the source of the data read by the providers
+     *
+     * @return the data source
+     */
+    public static synchronized IProviderDataSource getDataSource( )
+    {
+        if ( _dataSource == null )
+        {
+            _dataSource = SpringContextService.getBean( BEAN_DATA_SOURCE );
+        }
+
+        return _dataSource;
+    }
+
+    /**
+     * Replaces the source of the data read by the providers, for instance by an in-memory data source in the tests and the benchmarks
+     *
+     * @param dataSource
+     *            the data source, or {@code null} to use the data source of the Spring context
+     */
+    public static synchronized void setDataSource( IProviderDataSource dataSource )
+    {
+        _dataSource = dataSource;
+    }
+}
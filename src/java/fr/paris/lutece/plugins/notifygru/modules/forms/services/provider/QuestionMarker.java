@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.forms.business.Form;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeComment;
+import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeFile;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
+import fr.paris.lutece.plugins.genericattributes.business.Field;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.metrics.NotifyGruFormsMetrics;
+import fr.paris.lutece.portal.service.file.FileService;
+import fr.paris.lutece.portal.service.file.IFileStoreServiceProvider;
+
+/**
+ * This class represents the compiled marker of a question. It is immutable.
+ * <p>
+ * Everything which only depends on the definition of the question is resolved when the marker is compiled: the marker names, the entry type
+ * service, the way the value is extracted and, for comments, the key of the attached file, its file store provider and the additional data of its
+ * download URL. The download URL itself is not part of the compiled marker, since the file store may sign it or limit it in time : it is generated for
+ * each notification.
+ * </p>
+ */
+public final class QuestionMarker
+{
+    /**
+     * The ways to extract the value of a question response
+     */
+    public enum ValueKind
+    {
+        /** The value is the download URL of the file attached to the comment */
+        COMMENT,
+        /** The value is the list of the download URLs of the files of the response */
+        FILE,
+        /** The value is the recap value of the response */
+        RECAP
+    }
+
+    private static final String FILE_STORE_PROVIDER_FORMS = "formsDatabaseFileStoreProvider";
+
+    private final int _nIdQuestion;
+    private final String _strCode;
+    private final String _strMarker;
+    private final String _strIterationMarkerPrefix;
+    private final IEntryTypeService _entryTypeService;
+    private final ValueKind _valueKind;
+    private final String _strCommentFileKey;
+    private final IFileStoreServiceProvider _commentFileStoreProvider;
+    private final Map<String, String> _mapCommentAdditionalData;
+
+    /**
+     * Constructor
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @param strCode
+     *            the question code
+     * @param strMarker
+     *            the marker name
+     * @param entryTypeService
+     *            the entry type service of the question
+     * @param valueKind
+     *            the way to extract the value of a response
+     * @param strCommentFileKey
+     *            the key of the file attached to the comment, or {@code null} if there is none
+     * @param commentFileStoreProvider
+     *            the file store provider of the file attached to the comment, or {@code null} if there is none
+     * @param mapCommentAdditionalData
+     *            the additional data of the download URL of the file attached to the comment, or {@code null} if there is none
+     */
+    private QuestionMarker( int nIdQuestion, String strCode, String strMarker, IEntryTypeService entryTypeService, ValueKind valueKind,
+            String strCommentFileKey, IFileStoreServiceProvider commentFileStoreProvider, Map<String, String> mapCommentAdditionalData )
+    {
+        _nIdQuestion = nIdQuestion;
+        _strCode = strCode;
+        _strMarker = ( strMarker != null ) ? strMarker.intern( ) : null;
+        _strIterationMarkerPrefix = ( strMarker + Constants.MARK_POSITION_ITERATION ).intern( );
+        _entryTypeService = entryTypeService;
+        _valueKind = valueKind;
+        _strCommentFileKey = strCommentFileKey;
+        _commentFileStoreProvider = commentFileStoreProvider;
+        _mapCommentAdditionalData = mapCommentAdditionalData;
+    }
+
+    /**
+     * Compiles the marker of the specified question
+     *
+     * @param question
+     *            the question
+     * @param bAllForms
+     *            {@code true} if the marker is named after the question code (provider for all the forms of a workflow), {@code false} if it is named
+     *            after the question id
+     * @return the compiled marker
+     */
+    public static QuestionMarker compile( Question question, boolean bAllForms )
+    {
+        String strMarker = bAllForms ? question.getCode( ) : ( Constants.MARK_POSITION + question.getId( ) );
+        Entry entry = question.getEntry( );
+
+        if ( entry == null || entry.getFields( ) == null )
+        {
+            entry = EntryHome.findByPrimaryKey( question.getIdEntry( ) );
+        }
+
+        IEntryTypeService entryTypeService = EntryTypeServiceManager.getEntryTypeService( entry );
+        ValueKind valueKind = ValueKind.RECAP;
+        String strCommentFileKey = null;
+        IFileStoreServiceProvider commentFileStoreProvider = null;
+        Map<String, String> mapCommentAdditionalData = null;
+
+        if ( entryTypeService instanceof EntryTypeComment )
+        {
+            valueKind = ValueKind.COMMENT;
+            Field fieldFile = entry.getFieldByCode( IEntryTypeService.FIELD_DOWNLOADABLE_FILE );
+            strCommentFileKey = ( fieldFile != null ) ? fieldFile.getValue( ) : null;
+
+            if ( strCommentFileKey != null )
+            {
+                commentFileStoreProvider = FileService.getInstance( ).getFileStoreServiceProvider( FILE_STORE_PROVIDER_FORMS );
+
+                Map<String, String> additionnalData = new HashMap<>( );
+                additionnalData.put( FileService.PARAMETER_RESOURCE_ID, String.valueOf( entry.getIdResource( ) ) );
+                additionnalData.put( FileService.PARAMETER_RESOURCE_TYPE, Form.RESOURCE_TYPE );
+                additionnalData.put( FileService.PARAMETER_PROVIDER, commentFileStoreProvider.getName( ) );
+                mapCommentAdditionalData = Collections.unmodifiableMap( additionnalData );
+            }
+        }
+        else
+            if ( entryTypeService instanceof EntryTypeFile )
+            {
+                valueKind = ValueKind.FILE;
+            }
+
+        return new QuestionMarker( question.getId( ), question.getCode( ), strMarker, entryTypeService, valueKind, strCommentFileKey,
+                commentFileStoreProvider, mapCommentAdditionalData );
+    }
+
+    /**
+     * Gives the question id
+     *
+     * @return the question id
+     */
+    public int getIdQuestion( )
+    {
+        return _nIdQuestion;
+    }
+
+    /**
+     * Gives the question code, as it was when the marker was compiled
+     *
+     * @return the question code
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * Gives the name of the marker aggregating all the iterations of the question
+     *
+     * @return the marker name
+     */
+    public String getMarker( )
+    {
+        return _strMarker;
+    }
+
+    /**
+     * Gives the name of the marker of the specified iteration of the question
+     *
+     * @param nIterationNumber
+     *            the iteration number
+     * @return the marker name
+     */
+    public String getIterationMarker( int nIterationNumber )
+    {
+        return _strIterationMarkerPrefix + nIterationNumber;
+    }
+
+    /**
+     * Gives the entry type service of the question
+     *
+     * @return the entry type service
+     */
+    public IEntryTypeService getEntryTypeService( )
+    {
+        return _entryTypeService;
+    }
+
+    /**
+     * Gives the way to extract the value of a response
+     *
+     * @return the way to extract the value
+     */
+    public ValueKind getValueKind( )
+    {
+        return _valueKind;
+    }
+
+    /**
+     * Builds the download URL of the file attached to the comment. The URL is built on each call, since the file store may sign it or limit it in
+     * time, but its file store provider and its additional data are resolved when the marker is compiled.
+     *
+     * @return the download URL, or an empty string if the question is not a comment or has no attached file
+     */
+    public String buildCommentDownloadUrl( )
+    {
+        if ( _strCommentFileKey == null )
+        {
+            return StringUtils.EMPTY;
+        }
+
+        NotifyGruFormsMetrics.getInstance( ).incrementFileStoreLookups( );
+
+        return _commentFileStoreProvider.getFileDownloadUrlFO( _strCommentFileKey, _mapCommentAdditionalData );
+    }
+}
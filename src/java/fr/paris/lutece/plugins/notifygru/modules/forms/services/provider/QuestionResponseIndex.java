@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.Arrays;
+import java.util.List;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+
+/**
+ * This class represents an index of the question responses of a form response by question id.
+ * <p>
+ * The index is built once with primitive arrays: the distinct question ids are sorted, and each question id is associated with a slot whose responses
+ * are stored contiguously, in the order of the list. A lookup is a binary search without boxing.
+ * </p>
+ */
+public final class QuestionResponseIndex
+{
+    private static final int POSITION_BITS = 32;
+    private static final long POSITION_MASK = 0xFFFFFFFFL;
+
+    private final List<FormQuestionResponse> _listFormQuestionResponse;
+    private final int [ ] _arrayIdQuestion;
+    private final int [ ] _arrayOffsets;
+    private final int [ ] _arrayPositions;
+
+    /**
+     * Constructor
+     *
+     * @param listFormQuestionResponse
+     *            the question responses
+     */
+    public QuestionResponseIndex( List<FormQuestionResponse> listFormQuestionResponse )
+    {
+        int nSize = listFormQuestionResponse.size( );
+        long [ ] arrayKeys = new long [ nSize];
+
+        for ( int i = 0; i < nSize; i++ )
+        {
+            // The position in the low bits keeps the order of the list for the responses of a same question
+            arrayKeys [i] = ( (long) listFormQuestionResponse.get( i ).getQuestion( ).getId( ) << POSITION_BITS ) | i;
+        }
+
+        Arrays.sort( arrayKeys );
+
+        int [ ] arrayIdQuestion = new int [ nSize];
+        int [ ] arrayOffsets = new int [ nSize + 1];
+        int [ ] arrayPositions = new int [ nSize];
+        int nSlots = 0;
+
+        for ( int i = 0; i < nSize; i++ )
+        {
+            int nIdQuestion = (int) ( arrayKeys [i] >> POSITION_BITS );
+            arrayPositions [i] = (int) ( arrayKeys [i] & POSITION_MASK );
+
+            if ( nSlots == 0 || arrayIdQuestion [nSlots - 1] != nIdQuestion )
+            {
+                arrayIdQuestion [nSlots] = nIdQuestion;
+                arrayOffsets [nSlots] = i;
+                nSlots++;
+            }
+        }
+
+        arrayOffsets [nSlots] = nSize;
+
+        _listFormQuestionResponse = listFormQuestionResponse;
+        _arrayIdQuestion = Arrays.copyOf( arrayIdQuestion, nSlots );
+        _arrayOffsets = Arrays.copyOf( arrayOffsets, nSlots + 1 );
+        _arrayPositions = arrayPositions;
+    }
+
+    /**
+     * Gives the number of distinct questions
+     *
+     * @return the number of slots of the index
+     */
+    public int size( )
+    {
+        return _arrayIdQuestion.length;
+    }
+
+    /**
+     * Gives the slot of the specified question
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @return the slot, between 0 and {@link #size()} excluded, or a negative value if the question has no response
+     */
+    public int indexOf( int nIdQuestion )
+    {
+        int nSlot = Arrays.binarySearch( _arrayIdQuestion, nIdQuestion );
+
+        return ( nSlot >= 0 ) ? nSlot : -1;
+    }
+
+    /**
+     * Gives the first response, in the order of the list, to the specified question
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @return the response, or {@code null} if the question has no response
+     */
+    public FormQuestionResponse getFirst( int nIdQuestion )
+    {
+        int nSlot = indexOf( nIdQuestion );
+
+        return ( nSlot >= 0 ) ? _listFormQuestionResponse.get( _arrayPositions [_arrayOffsets [nSlot]] ) : null;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * This class represents the rendered markers of a form response itself: its dates and its status. The markers only depend on the form response and
+ * its modification dates, so they can be shared by all the notifications of a version of the form response.
+ * <p>
+ * The creation and update dates are split into a date marker and a time marker, formatted with the patterns of the properties
+ * {@code notifygru-forms.markers.dateFormat} and {@code notifygru-forms.markers.timeFormat}. The status update date has no time marker, so it keeps
+ * both the date and the time, formatted with the pattern of the property {@code notifygru-forms.markers.dateTimeFormat}. The short localized format of
+ * the locale is used when a pattern is not defined.
+ * </p>
+ */
+public final class ResponseMarkers implements Serializable
+{
+    public static final String MARK_STATUS = "status";
+    public static final String MARK_STATUS_UPDATE_DATE = "update_date_status";
+
+    private static final long serialVersionUID = 1L;
+
+    // Properties
+    private static final String PROPERTY_DATE_FORMAT = "notifygru-forms.markers.dateFormat";
+    private static final String PROPERTY_TIME_FORMAT = "notifygru-forms.markers.timeFormat";
+    private static final String PROPERTY_DATE_TIME_FORMAT = "notifygru-forms.markers.dateTimeFormat";
+
+    private static final String KEY_SEPARATOR = "_";
+
+    // DateTimeFormatter objects are immutable and thread-safe, so they are shared by locale
+    private static final Map<Locale, DateTimeFormatter> _mapDateFormatters = new ConcurrentHashMap<>( );
+    private static final Map<Locale, DateTimeFormatter> _mapTimeFormatters = new ConcurrentHashMap<>( );
+    private static final Map<Locale, DateTimeFormatter> _mapDateTimeFormatters = new ConcurrentHashMap<>( );
+
+    private final Map<String, String> _mapValues;
+
+    /**
+     * Constructor
+     *
+     * @param mapValues
+     *            the values, keyed by marker name
+     */
+    private ResponseMarkers( Map<String, String> mapValues )
+    {
+        _mapValues = Collections.unmodifiableMap( mapValues );
+    }
+
+    /**
+     * Renders the markers of the specified form response
+     *
+     * @param formResponse
+     *            the form response
+     * @param locale
+     *            the locale
+     * @return the markers
+     */
+    public static ResponseMarkers render( FormResponse formResponse, Locale locale )
+    {
+        DateTimeFormatter dateFormatter = _mapDateFormatters.computeIfAbsent( locale,
+                l -> createFormatter( PROPERTY_DATE_FORMAT, DateTimeFormatter.ofLocalizedDate( FormatStyle.SHORT ), l ) );
+        DateTimeFormatter timeFormatter = _mapTimeFormatters.computeIfAbsent( locale,
+                l -> createFormatter( PROPERTY_TIME_FORMAT, DateTimeFormatter.ofLocalizedTime( FormatStyle.SHORT ), l ) );
+        DateTimeFormatter dateTimeFormatter = _mapDateTimeFormatters.computeIfAbsent( locale,
+                l -> createFormatter( PROPERTY_DATE_TIME_FORMAT, DateTimeFormatter.ofLocalizedDateTime( FormatStyle.SHORT ), l ) );
+
+        // A form response which has never been modified has no update date
+        Timestamp update = ( formResponse.getUpdate( ) != null ) ? formResponse.getUpdate( ) : formResponse.getCreation( );
+
+        Map<String, String> mapValues = new HashMap<>( );
+        mapValues.put( Constants.MARK_CREATION_DATE, format( formResponse.getCreation( ), dateFormatter ) );
+        mapValues.put( Constants.MARK_CREATION_TIME, format( formResponse.getCreation( ), timeFormatter ) );
+        mapValues.put( Constants.MARK_UPDATE_DATE, format( update, dateFormatter ) );
+        mapValues.put( Constants.MARK_UPDATE_TIME, format( update, timeFormatter ) );
+        mapValues.put( MARK_STATUS, String.valueOf( formResponse.isPublished( ) ) );
+        mapValues.put( MARK_STATUS_UPDATE_DATE, format( formResponse.getUpdateStatus( ), dateTimeFormatter ) );
+
+        return new ResponseMarkers( mapValues );
+    }
+
+    /**
+     * Builds the key identifying a version of the form response. The key changes each time the form response or its status is modified.
+     *
+     * @param formResponse
+     *            the form response
+     * @param locale
+     *            the locale
+     * @return the key
+     */
+    public static String getVersionKey( FormResponse formResponse, Locale locale )
+    {
+        return formResponse.getId( ) + KEY_SEPARATOR + getTime( formResponse.getUpdate( ) ) + KEY_SEPARATOR + getTime( formResponse.getUpdateStatus( ) )
+                + KEY_SEPARATOR + locale;
+    }
+
+    /**
+     * Gives the value of the specified marker
+     *
+     * @param strMarker
+     *            the marker name
+     * @return the value
+     */
+    public String getValue( String strMarker )
+    {
+        return _mapValues.get( strMarker );
+    }
+
+    /**
+     * Creates a date formatter
+     *
+     * @param strPatternProperty
+     *            the property of the pattern
+     * @param defaultFormatter
+     *            the formatter to use if the property is not defined
+     * @param locale
+     *            the locale
+     * @return the formatter
+     */
+    private static DateTimeFormatter createFormatter( String strPatternProperty, DateTimeFormatter defaultFormatter, Locale locale )
+    {
+        String strPattern = AppPropertiesService.getProperty( strPatternProperty );
+        DateTimeFormatter formatter = StringUtils.isNotBlank( strPattern ) ? DateTimeFormatter.ofPattern( strPattern ) : defaultFormatter;
+
+        return formatter.withLocale( locale ).withZone( ZoneId.systemDefault( ) );
+    }
+
+    /**
+     * Formats a timestamp
+     *
+     * @param timestamp
+     *            the timestamp
+     * @param formatter
+     *            the formatter
+     * @return the formatted timestamp, or an empty string if the timestamp is {@code null}
+     */
+    private static String format( Timestamp timestamp, DateTimeFormatter formatter )
+    {
+        return ( timestamp != null ) ? formatter.format( timestamp.toInstant( ) ) : StringUtils.EMPTY;
+    }
+
+    /**
+     * Gives the time of a timestamp
+     *
+     * @param timestamp
+     *            the timestamp
+     * @return the time in milliseconds, or 0 if the timestamp is {@code null}
+     */
+    private static long getTime( Timestamp timestamp )
+    {
+        return ( timestamp != null ) ? timestamp.getTime( ) : 0L;
+    }
+}
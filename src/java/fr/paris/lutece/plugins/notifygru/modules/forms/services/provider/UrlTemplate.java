@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import fr.paris.lutece.util.url.UrlItem;
+
+/**
+ * This class represents a precompiled URL whose last parameter is an id. Rendering the URL only appends the id to the precompiled prefix.
+ */
+public final class UrlTemplate
+{
+    private static final String PARAMETER_SEPARATOR = "&";
+    private static final String VALUE_SEPARATOR = "=";
+    private static final int MAX_INT_LENGTH = 11;
+
+    private final String _strPrefix;
+
+    /**
+     * Constructor
+     *
+     * @param strPrefix
+     *            the URL without the value of its last parameter
+     */
+    private UrlTemplate( String strPrefix )
+    {
+        _strPrefix = strPrefix;
+    }
+
+    /**
+     * Compiles a template
+     *
+     * @param url
+     *            the URL with all its parameters except the id parameter. It must have at least one parameter.
+     * @param strIdParameter
+     *            the name of the id parameter, appended as last parameter
+     * @return the template
+     */
+    public static UrlTemplate compile( UrlItem url, String strIdParameter )
+    {
+        return new UrlTemplate( url.getUrl( ) + PARAMETER_SEPARATOR + strIdParameter + VALUE_SEPARATOR );
+    }
+
+    /**
+     * Renders the URL for the specified id
+     *
+     * @param nId
+     *            the id
+     * @return the URL
+     */
+    public String render( int nId )
+    {
+        return new StringBuilder( _strPrefix.length( ) + MAX_INT_LENGTH ).append( _strPrefix ).append( nId ).toString( );
+    }
+
+    /**
+     * Cache of templates keyed by base URL. As the base URL may come from the request, the number of cached templates is bounded.
+     */
+    public static final class Cache
+    {
+        private static final int MAX_SIZE = 64;
+
+        private final Map<String, UrlTemplate> _mapTemplates = new ConcurrentHashMap<>( );
+        private final Function<String, UrlTemplate> _compiler;
+
+        /**
+         * Constructor
+         *
+         * @param compiler
+         *            the function compiling the template of a base URL
+         */
+        public Cache( Function<String, UrlTemplate> compiler )
+        {
+            _compiler = compiler;
+        }
+
+        /**
+         * Gives the template of the specified base URL. It is compiled if it is not in the cache.
+         *
+         * @param strBaseUrl
+         *            the base URL
+         * @return the template
+         */
+        public UrlTemplate get( String strBaseUrl )
+        {
+            UrlTemplate template = _mapTemplates.get( strBaseUrl );
+
+            if ( template == null )
+            {
+                if ( _mapTemplates.size( ) >= MAX_SIZE )
+                {
+                    _mapTemplates.clear( );
+                }
+
+                template = _compiler.apply( strBaseUrl );
+                _mapTemplates.put( strBaseUrl, template );
+            }
+
+            return template;
+        }
+    }
+}
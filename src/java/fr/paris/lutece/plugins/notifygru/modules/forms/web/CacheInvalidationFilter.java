@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.web;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.forms.business.QuestionHome;
+import fr.paris.lutece.plugins.forms.business.Step;
+import fr.paris.lutece.plugins.forms.business.StepHome;
+import fr.paris.lutece.plugins.notifygru.modules.forms.services.cache.CacheInvalidationService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * This filter invalidates the caches of the module, on all the nodes, each time an action modifying cached data is performed in an administration
+ * feature.
+ * <p>
+ * The init parameter {@code target} tells which caches to reset ({@code forms} or {@code mappings}). The optional init parameter {@code pagePrefix}
+ * restricts the filter to the JSP whose name starts with the given prefix, and the optional init parameter {@code actions} restricts it to the
+ * given comma-separated actions, passed either as the value of the {@code action} parameter or as a parameter named {@code action_<action>}.
+ * Without this parameter, any POST request or request with an action is handled.
+ * </p>
+ * <p>
+ * For the forms, only the caches of the form of the request are invalidated. The form is given by the {@code id_form} parameter, or found from the
+ * {@code id_step} or {@code id_question} parameter. All the forms are invalidated only when none of them is given, for instance when a form is
+ * created or imported.
+ * </p>
+ */
+public class CacheInvalidationFilter implements Filter
+{
+    private static final String METHOD_POST = "POST";
+    private static final String PARAMETER_ACTION = "action";
+    private static final String PARAMETER_ACTION_PREFIX = "action_";
+    private static final String PARAMETER_ID_FORM = "id_form";
+    private static final String PARAMETER_ID_STEP = "id_step";
+    private static final String PARAMETER_ID_QUESTION = "id_question";
+    private static final String INIT_PARAMETER_TARGET = "target";
+    private static final String INIT_PARAMETER_PAGE_PREFIX = "pagePrefix";
+    private static final String INIT_PARAMETER_ACTIONS = "actions";
+    private static final String TARGET_FORMS = "forms";
+    private static final String PATH_SEPARATOR = "/";
+    private static final String ACTION_SEPARATOR = ",";
+
+    private boolean _bTargetForms;
+    private String _strPagePrefix;
+    private Set<String> _setActions;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void init( FilterConfig filterConfig ) throws ServletException
+    {
+        _bTargetForms = TARGET_FORMS.equals( filterConfig.getInitParameter( INIT_PARAMETER_TARGET ) );
+        _strPagePrefix = StringUtils.defaultString( filterConfig.getInitParameter( INIT_PARAMETER_PAGE_PREFIX ) );
+
+        String strActions = filterConfig.getInitParameter( INIT_PARAMETER_ACTIONS );
+        _setActions = StringUtils.isBlank( strActions ) ? null
+                : Collections.unmodifiableSet( new HashSet<>( Arrays.asList( StringUtils.stripAll( strActions.split( ACTION_SEPARATOR ) ) ) ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException, ServletException
+    {
+        try
+        {
+            chain.doFilter( request, response );
+        }
+        finally
+        {
+            invalidate( (HttpServletRequest) request );
+        }
+    }
+
+    /**
+     * Invalidates the caches if the request performs an action modifying their data. The errors are logged, so that they do not replace the error
+     * of the request, if any.
+     *
+     * @param request
+     *            the request
+     */
+    private void invalidate( HttpServletRequest request )
+    {
+        try
+        {
+            if ( !isPageFiltered( request ) || !isAction( request ) )
+            {
+                return;
+            }
+
+            if ( _bTargetForms )
+            {
+                CacheInvalidationService.formChanged( getFormResourceKey( request ) );
+            }
+            else
+            {
+                CacheInvalidationService.mappingChanged( CacheInvalidationService.RESOURCE_KEY_ALL );
+            }
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Unable to invalidate the caches of the notifygru-forms module after the request {}", request.getServletPath( ), e );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy( )
+    {
+        // Nothing to destroy
+    }
+
+    /**
+     * Tests if the requested page is concerned by the filter
+     *
+     * @param request
+     *            the request
+     * @return {@code true} if the page is concerned by the filter, {@code false} otherwise
+     */
+    private boolean isPageFiltered( HttpServletRequest request )
+    {
+        String strPage = StringUtils.substringAfterLast( request.getServletPath( ), PATH_SEPARATOR );
+
+        return strPage.startsWith( _strPagePrefix );
+    }
+
+    /**
+     * Tests if the request performs one of the actions handled by the filter, which modify data
+     *
+     * @param request
+     *            the request
+     * @return {@code true} if the request performs one of the actions, {@code false} otherwise
+     */
+    private boolean isAction( HttpServletRequest request )
+    {
+        String strAction = request.getParameter( PARAMETER_ACTION );
+
+        if ( _setActions == null )
+        {
+            return METHOD_POST.equalsIgnoreCase( request.getMethod( ) ) || StringUtils.isNotEmpty( strAction );
+        }
+
+        if ( strAction != null && _setActions.contains( strAction ) )
+        {
+            return true;
+        }
+
+        Enumeration<String> enumParameterNames = request.getParameterNames( );
+
+        while ( enumParameterNames.hasMoreElements( ) )
+        {
+            String strParameterName = enumParameterNames.nextElement( );
+
+            if ( strParameterName.startsWith( PARAMETER_ACTION_PREFIX )
+                    && _setActions.contains( strParameterName.substring( PARAMETER_ACTION_PREFIX.length( ) ) ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gives the resource key of the form modified by the request
+     *
+     * @param request
+     *            the request
+     * @return the form id, or {@link CacheInvalidationService#RESOURCE_KEY_ALL} if the form cannot be found
+     */
+    private static String getFormResourceKey( HttpServletRequest request )
+    {
+        String strIdForm = request.getParameter( PARAMETER_ID_FORM );
+
+        if ( StringUtils.isNumeric( strIdForm ) )
+        {
+            return strIdForm;
+        }
+
+        int nIdStep = -1;
+        String strIdQuestion = request.getParameter( PARAMETER_ID_QUESTION );
+        String strIdStep = request.getParameter( PARAMETER_ID_STEP );
+
+        if ( StringUtils.isNumeric( strIdQuestion ) )
+        {
+            Question question = QuestionHome.findByPrimaryKey( Integer.parseInt( strIdQuestion ) );
+            nIdStep = ( question != null ) ? question.getIdStep( ) : -1;
+        }
+        else
+            if ( StringUtils.isNumeric( strIdStep ) )
+            {
+                nIdStep = Integer.parseInt( strIdStep );
+            }
+
+        Step step = ( nIdStep > 0 ) ? StepHome.findByPrimaryKey( nIdStep ) : null;
+
+        return ( step != null ) ? String.valueOf( step.getIdForm( ) ) : CacheInvalidationService.RESOURCE_KEY_ALL;
+    }
+}
@@ -0,0 +1,10 @@
+--
+-- Structure for table notifygru_forms_cache_version
+--
+DROP TABLE IF EXISTS notifygru_forms_cache_version;
+CREATE TABLE notifygru_forms_cache_version (
+	resource_type VARCHAR(50) NOT NULL,
+	resource_key VARCHAR(255) NOT NULL,
+	version INT DEFAULT 0 NOT NULL,
+	PRIMARY KEY (resource_type, resource_key)
+);
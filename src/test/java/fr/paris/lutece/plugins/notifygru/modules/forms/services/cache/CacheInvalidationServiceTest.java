@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.CacheVersion;
+import fr.paris.lutece.plugins.notifygru.modules.forms.business.ICacheVersionDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Tests the cache invalidation between two nodes sharing the same database, simulated in the same JVM
+ */
+public class CacheInvalidationServiceTest extends LuteceTestCase
+{
+    private static final String ID_FORM = "3";
+    private static final String ID_OTHER_FORM = "4";
+
+    private InMemoryCacheVersionDAO _cacheVersionDAO;
+    private List<String> _listInvalidationsA;
+    private List<String> _listInvalidationsB;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+
+        _cacheVersionDAO = new InMemoryCacheVersionDAO( );
+        _listInvalidationsA = new ArrayList<>( );
+        _listInvalidationsB = new ArrayList<>( );
+    }
+
+    /**
+     * A modification made on a node is applied immediately on this node, and on the other node when it polls
+     */
+    public void testModificationIsReceivedByTheOtherNode( )
+    {
+        CacheInvalidationService nodeA = createNode( _listInvalidationsA, true );
+        CacheInvalidationService nodeB = createNode( _listInvalidationsB, true );
+        nodeA.receiveChanges( );
+        nodeB.receiveChanges( );
+
+        nodeA.resourceChanged( CacheInvalidationService.RESOURCE_TYPE_FORM, ID_FORM );
+
+        assertEquals( Collections.singletonList( CacheInvalidationService.RESOURCE_TYPE_FORM + ID_FORM ), _listInvalidationsA );
+        assertTrue( _listInvalidationsB.isEmpty( ) );
+
+        nodeB.receiveChanges( );
+
+        assertEquals( Collections.singletonList( CacheInvalidationService.RESOURCE_TYPE_FORM + ID_FORM ), _listInvalidationsB );
+
+        nodeB.receiveChanges( );
+
+        assertEquals( 1, _listInvalidationsB.size( ) );
+    }
+
+    /**
+     * Only the modified resources are invalidated, in both directions
+     */
+    public void testOnlyTheModifiedResourcesAreInvalidated( )
+    {
+        CacheInvalidationService nodeA = createNode( _listInvalidationsA, true );
+        CacheInvalidationService nodeB = createNode( _listInvalidationsB, true );
+        nodeA.resourceChanged( CacheInvalidationService.RESOURCE_TYPE_FORM, ID_OTHER_FORM );
+        nodeA.receiveChanges( );
+        nodeB.receiveChanges( );
+        _listInvalidationsA.clear( );
+
+        nodeB.resourceChanged( CacheInvalidationService.RESOURCE_TYPE_MAPPING, CacheInvalidationService.RESOURCE_KEY_ALL );
+        nodeA.receiveChanges( );
+
+        assertEquals( Collections.singletonList( CacheInvalidationService.RESOURCE_TYPE_MAPPING + CacheInvalidationService.RESOURCE_KEY_ALL ),
+                _listInvalidationsA );
+    }
+
+    /**
+     * The first poll of a node only records the current versions, since its caches are empty
+     */
+    public void testFirstPollOnlyRecordsTheVersions( )
+    {
+        CacheInvalidationService nodeA = createNode( _listInvalidationsA, true );
+        CacheInvalidationService nodeB = createNode( _listInvalidationsB, true );
+
+        nodeA.resourceChanged( CacheInvalidationService.RESOURCE_TYPE_FORM, ID_FORM );
+        nodeB.receiveChanges( );
+
+        assertTrue( _listInvalidationsB.isEmpty( ) );
+    }
+
+    /**
+     * Nothing is written to the database when the broadcast is disabled
+     */
+    public void testNoBroadcastWhenDisabled( )
+    {
+        CacheInvalidationService nodeA = createNode( _listInvalidationsA, false );
+        CacheInvalidationService nodeB = createNode( _listInvalidationsB, false );
+        nodeB.receiveChanges( );
+
+        nodeA.resourceChanged( CacheInvalidationService.RESOURCE_TYPE_FORM, ID_FORM );
+        nodeB.receiveChanges( );
+
+        assertEquals( 1, _listInvalidationsA.size( ) );
+        assertTrue( _listInvalidationsB.isEmpty( ) );
+        assertEquals( 0, _cacheVersionDAO.getIncrementCount( ) );
+    }
+
+    /**
+     * Creates a node, with its own transport over the shared database
+     *
+     * @param listInvalidations
+     *            the list receiving the invalidations of the caches of the node
+     * @param bBroadcast
+     *            {@code true} to broadcast the modifications
+     * @return the node
+     */
+    private CacheInvalidationService createNode( List<String> listInvalidations, boolean bBroadcast )
+    {
+        return new CacheInvalidationService( new DatabaseCacheInvalidationTransport( _cacheVersionDAO ),
+                ( strResourceType, strResourceKey ) -> listInvalidations.add( strResourceType + strResourceKey ), bBroadcast );
+    }
+
+    /**
+     * In-memory stand-in for the version stamps table
+     */
+    private static final class InMemoryCacheVersionDAO implements ICacheVersionDAO
+    {
+        private final Map<String, CacheVersion> _mapVersions = new LinkedHashMap<>( );
+        private int _nIncrementCount;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void increment( String strResourceType, String strResourceKey, Plugin plugin )
+        {
+            CacheVersion version = _mapVersions.computeIfAbsent( strResourceType + "|" + strResourceKey, strKey -> {
+                CacheVersion newVersion = new CacheVersion( );
+                newVersion.setResourceType( strResourceType );
+                newVersion.setResourceKey( strResourceKey );
+                return newVersion;
+            } );
+            version.setVersion( version.getVersion( ) + 1 );
+            _nIncrementCount++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized List<CacheVersion> selectAll( Plugin plugin )
+        {
+            List<CacheVersion> listVersions = new ArrayList<>( );
+
+            for ( CacheVersion version : _mapVersions.values( ) )
+            {
+                CacheVersion copy = new CacheVersion( );
+                copy.setResourceType( version.getResourceType( ) );
+                copy.setResourceKey( version.getResourceKey( ) );
+                copy.setVersion( version.getVersion( ) );
+                listVersions.add( copy );
+            }
+
+            return listVersions;
+        }
+
+        /**
+         * @return the number of increments
+         */
+        public synchronized int getIncrementCount( )
+        {
+            return _nIncrementCount;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
+import fr.paris.lutece.plugins.workflowcore.service.provider.IProvider;
+import fr.paris.lutece.plugins.workflowcore.service.provider.InfoMarker;
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Tests that the data of a form response are loaded once per provider
+ */
+public class FormResponseSnapshotTest extends LuteceTestCase
+{
+    private static final int ID_FORM = 1;
+    private static final int ID_FORM_RESPONSE = 10;
+    private static final int CALL_COUNT = 3;
+    private static final FormsUrlContext URL_CONTEXT = new FormsUrlContext( "http://localhost/lutece/", "http://localhost/lutece/jsp/site/Portal.jsp" );
+
+    private InMemoryProviderDataSource _dataSource;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+
+        _dataSource = new InMemoryProviderDataSource( );
+        List<Question> listQuestions = SyntheticForms.createForm( _dataSource, ID_FORM, 5, 1 );
+        SyntheticForms.createFormResponse( _dataSource, ID_FORM_RESPONSE, ID_FORM, listQuestions, 2, 2 );
+        ProviderDataSourceService.setDataSource( _dataSource );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown( ) throws Exception
+    {
+        ProviderDataSourceService.setDataSource( null );
+
+        super.tearDown( );
+    }
+
+    /**
+     * Each part of the snapshot is loaded once, however many times it is read
+     */
+    public void testSnapshotLoadsEachPartOnce( )
+    {
+        FormResponseSnapshot snapshot = new FormResponseSnapshot( ID_FORM_RESPONSE, _dataSource );
+
+        for ( int i = 0; i < CALL_COUNT; i++ )
+        {
+            assertEquals( ID_FORM, snapshot.getFormResponse( ).getFormId( ) );
+            assertEquals( 12, snapshot.getFormQuestionResponseList( ).size( ) );
+            assertEquals( 6, snapshot.getQuestionResponseIndex( ).size( ) );
+            assertEquals( 4, snapshot.getFileMetadata( ).size( ) );
+        }
+
+        assertEquals( 1, _dataSource.getFormResponseCallCount( ) );
+        assertEquals( 1, _dataSource.getFormQuestionResponseCallCount( ) );
+        assertEquals( 1, _dataSource.getFileMetadataCallCount( ) );
+    }
+
+    /**
+     * A snapshot seeded with a form response loaded with other ones does not load it again
+     */
+    public void testSeededSnapshotDoesNotReloadTheFormResponse( )
+    {
+        FormResponse formResponse = _dataSource.findFormResponses( Collections.singleton( ID_FORM_RESPONSE ) ).get( ID_FORM_RESPONSE );
+        FormResponseSnapshot snapshot = new FormResponseSnapshot( formResponse, _dataSource );
+
+        assertSame( formResponse, snapshot.getFormResponse( ) );
+        assertEquals( 12, snapshot.getFormQuestionResponseList( ).size( ) );
+        assertEquals( 1, _dataSource.getFormResponsesCallCount( ) );
+        assertEquals( 0, _dataSource.getFormResponseCallCount( ) );
+        assertEquals( 1, _dataSource.getFormQuestionResponseCallCount( ) );
+    }
+
+    /**
+     * A snapshot seeded with the question responses and the files loaded with other form responses does not load them again
+     */
+    public void testFullySeededSnapshotDoesNotQueryTheDataSource( )
+    {
+        FormResponse formResponse = _dataSource.findFormResponses( Collections.singleton( ID_FORM_RESPONSE ) ).get( ID_FORM_RESPONSE );
+        List<FormQuestionResponse> listFormQuestionResponse = _dataSource.findFormQuestionResponses( Collections.singleton( formResponse ) )
+                .get( ID_FORM_RESPONSE );
+        Set<Integer> setIdFile = new HashSet<>( );
+        FormResponseSnapshot.collectFileIds( listFormQuestionResponse, setIdFile );
+        Map<Integer, File> mapFileMetadata = _dataSource.findFileMetadata( setIdFile );
+        _dataSource.resetCallCounts( );
+
+        FormResponseSnapshot snapshot = new FormResponseSnapshot( formResponse, listFormQuestionResponse, mapFileMetadata, _dataSource );
+
+        assertEquals( 12, snapshot.getFormQuestionResponseList( ).size( ) );
+        assertEquals( 6, snapshot.getQuestionResponseIndex( ).size( ) );
+        assertEquals( 4, snapshot.getFileMetadata( ).size( ) );
+        assertEquals( 0, _dataSource.getFormResponseCallCount( ) );
+        assertEquals( 0, _dataSource.getFormQuestionResponseCallCount( ) );
+        assertEquals( 0, _dataSource.getFileMetadataCallCount( ) );
+    }
+
+    /**
+     * Reading the question responses page by page does not load nor keep the whole list
+     */
+    public void testPagedReadingDoesNotKeepTheQuestionResponses( )
+    {
+        FormResponseSnapshot snapshot = new FormResponseSnapshot( ID_FORM_RESPONSE, _dataSource );
+        List<FormQuestionResponse> listRead = new ArrayList<>( );
+        Set<Integer> setIdFile = new HashSet<>( );
+
+        snapshot.readFormQuestionResponsePages( 5, listPage -> {
+            assertTrue( listPage.size( ) <= 5 );
+            listRead.addAll( listPage );
+            setIdFile.addAll( snapshot.findFileMetadata( listPage ).keySet( ) );
+        } );
+
+        assertEquals( 12, listRead.size( ) );
+        assertEquals( 4, setIdFile.size( ) );
+        assertEquals( 3, _dataSource.getFormQuestionResponsePageCallCount( ) );
+        assertEquals( 0, _dataSource.getFormQuestionResponseCallCount( ) );
+        assertFalse( snapshot.isFormQuestionResponseListLoaded( ) );
+    }
+
+    /**
+     * Creating the providers of several form responses loads their data with one call per kind of data
+     */
+    public void testCreateProvidersLoadsTheDataInBatch( )
+    {
+        List<Question> listQuestions = _dataSource.findQuestionsByForm( ID_FORM );
+        List<ResourceHistory> listResourceHistory = new ArrayList<>( );
+
+        for ( int nIdFormResponse = ID_FORM_RESPONSE; nIdFormResponse < ID_FORM_RESPONSE + CALL_COUNT; nIdFormResponse++ )
+        {
+            if ( nIdFormResponse != ID_FORM_RESPONSE )
+            {
+                SyntheticForms.createFormResponse( _dataSource, nIdFormResponse, ID_FORM, listQuestions, 2, 2 );
+            }
+
+            ResourceHistory resourceHistory = new ResourceHistory( );
+            resourceHistory.setIdResource( nIdFormResponse );
+            listResourceHistory.add( resourceHistory );
+        }
+
+        _dataSource.resetCallCounts( );
+
+        List<IProvider> listProviders = new FormsProviderManager( SyntheticForms.PROVIDER_MANAGER_ID ).createProviders( String.valueOf( ID_FORM ),
+                listResourceHistory, URL_CONTEXT );
+
+        for ( IProvider provider : listProviders )
+        {
+            assertFalse( provider.provideMarkerValues( ).isEmpty( ) );
+        }
+
+        assertEquals( CALL_COUNT, listProviders.size( ) );
+        assertEquals( 1, _dataSource.getFormResponsesCallCount( ) );
+        assertEquals( 1, _dataSource.getFormQuestionResponsesCallCount( ) );
+        assertEquals( 1, _dataSource.getFileMetadataCallCount( ) );
+        assertEquals( 0, _dataSource.getFormResponseCallCount( ) );
+        assertEquals( 0, _dataSource.getFormQuestionResponseCallCount( ) );
+    }
+
+    /**
+     * The provide methods and the marker generation of a provider share the data loaded by its constructor
+     */
+    public void testProviderLoadsTheFormResponseOnce( )
+    {
+        FormResponseSnapshot snapshot = new FormResponseSnapshot( ID_FORM_RESPONSE, _dataSource );
+        FormsProvider provider = new FormsProvider( String.valueOf( ID_FORM ), snapshot,
+                _dataSource.findMapping( SyntheticForms.getCompleteProviderId( ID_FORM ) ), URL_CONTEXT );
+
+        assertEquals( "value 1000 0@example.org", provider.provideCustomerEmail( ) );
+        assertEquals( "value 1000 0@example.org", provider.provideDemandReference( ) );
+        assertEquals( String.valueOf( ID_FORM_RESPONSE ), provider.provideDemandId( ) );
+
+        Collection<InfoMarker> collectionFirstMarkers = provider.provideMarkerValues( );
+        Collection<InfoMarker> collectionSecondMarkers = provider.provideMarkerValues( );
+
+        assertFalse( collectionFirstMarkers.isEmpty( ) );
+        assertEquals( collectionFirstMarkers.size( ), collectionSecondMarkers.size( ) );
+        assertEquals( 1, _dataSource.getFormResponseCallCount( ) );
+        assertEquals( 1, _dataSource.getFormQuestionResponseCallCount( ) );
+        assertTrue( _dataSource.getFileMetadataCallCount( ) <= 1 );
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManager;
+import fr.paris.lutece.portal.business.file.File;
+
+/**
+ * In-memory stand-in for the Home classes read by the providers. Each method counts its calls, as each call stands for one query.
+ */
+public class InMemoryProviderDataSource implements IProviderDataSource
+{
+    private final Map<Integer, FormResponse> _mapFormResponses = new ConcurrentHashMap<>( );
+    private final Map<Integer, List<FormQuestionResponse>> _mapFormQuestionResponses = new ConcurrentHashMap<>( );
+    private final Map<Integer, File> _mapFiles = new ConcurrentHashMap<>( );
+    private final Map<Integer, List<Question>> _mapQuestions = new ConcurrentHashMap<>( );
+    private final Map<String, NotifygruMappingManager> _mapMappings = new ConcurrentHashMap<>( );
+
+    private final AtomicInteger _nFormResponseCallCount = new AtomicInteger( );
+    private final AtomicInteger _nFormResponsesCallCount = new AtomicInteger( );
+    private final AtomicInteger _nFormQuestionResponseCallCount = new AtomicInteger( );
+    private final AtomicInteger _nFormQuestionResponsesCallCount = new AtomicInteger( );
+    private final AtomicInteger _nFormQuestionResponsePageCallCount = new AtomicInteger( );
+    private final AtomicInteger _nFileMetadataCallCount = new AtomicInteger( );
+    private final AtomicInteger _nQuestionCallCount = new AtomicInteger( );
+    private final AtomicInteger _nMappingCallCount = new AtomicInteger( );
+
+    /**
+     * Adds a form response
+     *
+     * @param formResponse
+     *            the form response
+     * @param listFormQuestionResponses
+     *            the question responses of the form response
+     */
+    public void addFormResponse( FormResponse formResponse, List<FormQuestionResponse> listFormQuestionResponses )
+    {
+        _mapFormResponses.put( formResponse.getId( ), formResponse );
+        _mapFormQuestionResponses.put( formResponse.getId( ), listFormQuestionResponses );
+    }
+
+    /**
+     * Adds the metadata of a file
+     *
+     * @param file
+     *            the file
+     */
+    public void addFile( File file )
+    {
+        _mapFiles.put( file.getIdFile( ), file );
+    }
+
+    /**
+     * Sets the questions of a form
+     *
+     * @param nIdForm
+     *            the form id
+     * @param listQuestions
+     *            the questions
+     */
+    public void setQuestions( int nIdForm, List<Question> listQuestions )
+    {
+        _mapQuestions.put( nIdForm, listQuestions );
+    }
+
+    /**
+     * Adds the mapping of a provider
+     *
+     * @param strCompleteProviderId
+     *            the complete provider id
+     * @param mapping
+     *            the mapping
+     */
+    public void addMapping( String strCompleteProviderId, NotifygruMappingManager mapping )
+    {
+        _mapMappings.put( strCompleteProviderId, mapping );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FormResponse findFormResponse( int nIdFormResponse )
+    {
+        _nFormResponseCallCount.incrementAndGet( );
+
+        return _mapFormResponses.get( nIdFormResponse );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, FormResponse> findFormResponses( Collection<Integer> collectionIdFormResponse )
+    {
+        _nFormResponsesCallCount.incrementAndGet( );
+
+        Map<Integer, FormResponse> mapFormResponses = new HashMap<>( );
+
+        for ( Integer nIdFormResponse : collectionIdFormResponse )
+        {
+            FormResponse formResponse = _mapFormResponses.get( nIdFormResponse );
+
+            if ( formResponse != null )
+            {
+                mapFormResponses.put( nIdFormResponse, formResponse );
+            }
+        }
+
+        return mapFormResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormQuestionResponse> findFormQuestionResponses( int nIdFormResponse )
+    {
+        _nFormQuestionResponseCallCount.incrementAndGet( );
+
+        return new ArrayList<>( _mapFormQuestionResponses.getOrDefault( nIdFormResponse, new ArrayList<>( ) ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, List<FormQuestionResponse>> findFormQuestionResponses( Collection<FormResponse> collectionFormResponse )
+    {
+        _nFormQuestionResponsesCallCount.incrementAndGet( );
+
+        Map<Integer, List<FormQuestionResponse>> mapFormQuestionResponses = new HashMap<>( );
+
+        for ( FormResponse formResponse : collectionFormResponse )
+        {
+            List<FormQuestionResponse> listFormQuestionResponses = _mapFormQuestionResponses.get( formResponse.getId( ) );
+
+            if ( listFormQuestionResponses != null )
+            {
+                mapFormQuestionResponses.put( formResponse.getId( ), new ArrayList<>( listFormQuestionResponses ) );
+            }
+        }
+
+        return mapFormQuestionResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormQuestionResponse> findFormQuestionResponses( FormResponse formResponse, Collection<Integer> collectionIdQuestion )
+    {
+        _nFormQuestionResponseCallCount.incrementAndGet( );
+
+        List<FormQuestionResponse> listFormQuestionResponses = new ArrayList<>( );
+
+        for ( FormQuestionResponse formQuestionResponse : _mapFormQuestionResponses.getOrDefault( formResponse.getId( ), new ArrayList<>( ) ) )
+        {
+            if ( collectionIdQuestion.contains( formQuestionResponse.getQuestion( ).getId( ) ) )
+            {
+                listFormQuestionResponses.add( formQuestionResponse );
+            }
+        }
+
+        return listFormQuestionResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readFormQuestionResponsePages( FormResponse formResponse, int nPageSize, Consumer<List<FormQuestionResponse>> consumer )
+    {
+        List<FormQuestionResponse> listFormQuestionResponses = _mapFormQuestionResponses.getOrDefault( formResponse.getId( ), new ArrayList<>( ) );
+
+        for ( int nFirst = 0; nFirst < listFormQuestionResponses.size( ); nFirst += nPageSize )
+        {
+            _nFormQuestionResponsePageCallCount.incrementAndGet( );
+            consumer.accept( new ArrayList<>( listFormQuestionResponses.subList( nFirst, Math.min( nFirst + nPageSize, listFormQuestionResponses.size( ) ) ) ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, File> findFileMetadata( Collection<Integer> collectionIdFile )
+    {
+        _nFileMetadataCallCount.incrementAndGet( );
+
+        Map<Integer, File> mapFiles = new HashMap<>( );
+
+        for ( Integer nIdFile : collectionIdFile )
+        {
+            File file = _mapFiles.get( nIdFile );
+
+            if ( file != null )
+            {
+                mapFiles.put( nIdFile, file );
+            }
+        }
+
+        return mapFiles;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Question> findQuestionsByForm( int nIdForm )
+    {
+        _nQuestionCallCount.incrementAndGet( );
+
+        return new ArrayList<>( _mapQuestions.getOrDefault( nIdForm, new ArrayList<>( ) ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NotifygruMappingManager findMapping( String strCompleteProviderId )
+    {
+        _nMappingCallCount.incrementAndGet( );
+
+        return _mapMappings.get( strCompleteProviderId );
+    }
+
+    /**
+     * @return the number of calls to {@link #findFormResponse(int)}
+     */
+    public int getFormResponseCallCount( )
+    {
+        return _nFormResponseCallCount.get( );
+    }
+
+    /**
+     * @return the number of calls to {@link #findFormResponses(Collection)}
+     */
+    public int getFormResponsesCallCount( )
+    {
+        return _nFormResponsesCallCount.get( );
+    }
+
+    /**
+     * @return the number of calls to {@link #findFormQuestionResponses(int)} and {@link #findFormQuestionResponses(FormResponse, Collection)}
+     */
+    public int getFormQuestionResponseCallCount( )
+    {
+        return _nFormQuestionResponseCallCount.get( );
+    }
+
+    /**
+     * @return the number of calls to {@link #findFormQuestionResponses(Collection)}
+     */
+    public int getFormQuestionResponsesCallCount( )
+    {
+        return _nFormQuestionResponsesCallCount.get( );
+    }
+
+    /**
+     * @return the number of pages read by {@link #readFormQuestionResponsePages(FormResponse, int, Consumer)}
+     */
+    public int getFormQuestionResponsePageCallCount( )
+    {
+        return _nFormQuestionResponsePageCallCount.get( );
+    }
+
+    /**
+     * @return the number of calls to {@link #findFileMetadata(Collection)}
+     */
+    public int getFileMetadataCallCount( )
+    {
+        return _nFileMetadataCallCount.get( );
+    }
+
+    /**
+     * @return the number of calls to {@link #findQuestionsByForm(int)}
+     */
+    public int getQuestionCallCount( )
+    {
+        return _nQuestionCallCount.get( );
+    }
+
+    /**
+     * @return the number of calls to {@link #findMapping(String)}
+     */
+    public int getMappingCallCount( )
+    {
+        return _nMappingCallCount.get( );
+    }
+
+    /**
+     * Resets the call counters
+     */
+    public void resetCallCounts( )
+    {
+        _nFormResponseCallCount.set( 0 );
+        _nFormResponsesCallCount.set( 0 );
+        _nFormQuestionResponseCallCount.set( 0 );
+        _nFormQuestionResponsesCallCount.set( 0 );
+        _nFormQuestionResponsePageCallCount.set( 0 );
+        _nFileMetadataCallCount.set( 0 );
+        _nQuestionCallCount.set( 0 );
+        _nMappingCallCount.set( 0 );
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notifygru.modules.forms.services.provider;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.EntryType;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.plugins.modulenotifygrumappingmanager.business.NotifygruMappingManager;
+import fr.paris.lutece.plugins.workflow.service.provider.ProviderManagerUtil;
+import fr.paris.lutece.portal.business.file.File;
+
+/**
+ * This class generates synthetic forms and form responses in an {@link InMemoryProviderDataSource}. A form has text questions followed by file
+ * questions. Each question of a form response is answered in every iteration, and each file question has the same number of files.
+ */
+public final class SyntheticForms
+{
+    public static final String PROVIDER_MANAGER_ID = Constants.PROVIDER_MANAGER_ID;
+
+    private static final String ENTRY_TYPE_TEXT = "forms.entryTypeText";
+    private static final String ENTRY_TYPE_FILE = "forms.entryTypeFile";
+    private static final String CODE_PREFIX = "question_";
+    private static final String FILE_ORIGIN = "defaultDatabaseFileStoreProvider";
+    private static final int QUESTIONS_PER_FORM = 1000;
+    private static final int FILES_PER_RESPONSE = 10000;
+
+    /**
+     * Private constructor
+     */
+    private SyntheticForms( )
+    {
+    }
+
+    /**
+     * Creates a form and its mapping. The question ids of the form are {@code nIdForm * 1000 + i}, the customer email being the first question.
+     *
+     * @param dataSource
+     *            the data source
+     * @param nIdForm
+     *            the form id
+     * @param nTextQuestionCount
+     *            the number of text questions
+     * @param nFileQuestionCount
+     *            the number of file questions
+     * @return the questions of the form
+     */
+    public static List<Question> createForm( InMemoryProviderDataSource dataSource, int nIdForm, int nTextQuestionCount, int nFileQuestionCount )
+    {
+        List<Question> listQuestions = new ArrayList<>( nTextQuestionCount + nFileQuestionCount );
+
+        for ( int i = 0; i < nTextQuestionCount + nFileQuestionCount; i++ )
+        {
+            listQuestions.add( createQuestion( nIdForm, nIdForm * QUESTIONS_PER_FORM + i, ( i < nTextQuestionCount ) ? ENTRY_TYPE_TEXT : ENTRY_TYPE_FILE, 0 ) );
+        }
+
+        dataSource.setQuestions( nIdForm, listQuestions );
+
+        NotifygruMappingManager mapping = new NotifygruMappingManager( );
+        mapping.setEmail( nIdForm * QUESTIONS_PER_FORM );
+        mapping.setDemandReference( nIdForm * QUESTIONS_PER_FORM );
+        mapping.setDemandeTypeId( nIdForm );
+        dataSource.addMapping( getCompleteProviderId( nIdForm ), mapping );
+
+        return listQuestions;
+    }
+
+    /**
+     * Creates a form response of a form created by {@link #createForm(InMemoryProviderDataSource, int, int, int)}. The text values look like email
+     * addresses, so that any of them can be mapped to the customer email.
+     *
+     * @param dataSource
+     *            the data source
+     * @param nIdFormResponse
+     *            the id of the form response
+     * @param nIdForm
+     *            the form id
+     * @param listQuestions
+     *            the questions of the form
+     * @param nIterationCount
+     *            the number of iterations of each question
+     * @param nFilesPerQuestion
+     *            the number of files of each file question
+     */
+    public static void createFormResponse( InMemoryProviderDataSource dataSource, int nIdFormResponse, int nIdForm, List<Question> listQuestions,
+            int nIterationCount, int nFilesPerQuestion )
+    {
+        Timestamp now = new Timestamp( System.currentTimeMillis( ) );
+        FormResponse formResponse = new FormResponse( );
+        formResponse.setId( nIdFormResponse );
+        formResponse.setFormId( nIdForm );
+        formResponse.setCreation( now );
+        formResponse.setUpdate( now );
+        formResponse.setUpdateStatus( now );
+
+        List<FormQuestionResponse> listFormQuestionResponses = new ArrayList<>( );
+        int nIdFile = nIdFormResponse * FILES_PER_RESPONSE;
+
+        for ( Question questionDefinition : listQuestions )
+        {
+            boolean bFile = ENTRY_TYPE_FILE.equals( questionDefinition.getEntry( ).getEntryType( ).getBeanName( ) );
+
+            for ( int nIteration = 0; nIteration < nIterationCount; nIteration++ )
+            {
+                List<Response> listResponses = new ArrayList<>( );
+
+                if ( bFile )
+                {
+                    for ( int i = 0; i < nFilesPerQuestion; i++ )
+                    {
+                        File file = createFile( ++nIdFile );
+                        dataSource.addFile( file );
+                        listResponses.add( createResponse( questionDefinition, nIteration, file.getTitle( ), file ) );
+                    }
+                }
+                else
+                {
+                    listResponses.add( createResponse( questionDefinition, nIteration,
+                            "value " + questionDefinition.getId( ) + " " + nIteration + "@example.org", null ) );
+                }
+
+                FormQuestionResponse formQuestionResponse = new FormQuestionResponse( );
+                formQuestionResponse.setIdFormResponse( nIdFormResponse );
+                formQuestionResponse.setQuestion( createQuestion( nIdForm, questionDefinition.getId( ),
+                        questionDefinition.getEntry( ).getEntryType( ).getBeanName( ), nIteration ) );
+                formQuestionResponse.setEntryResponse( listResponses );
+                listFormQuestionResponses.add( formQuestionResponse );
+            }
+        }
+
+        dataSource.addFormResponse( formResponse, listFormQuestionResponses );
+    }
+
+    /**
+     * Gives the complete provider id of a form
+     *
+     * @param nIdForm
+     *            the form id
+     * @return the complete provider id
+     */
+    public static String getCompleteProviderId( int nIdForm )
+    {
+        return ProviderManagerUtil.buildCompleteProviderId( PROVIDER_MANAGER_ID, String.valueOf( nIdForm ) );
+    }
+
+    /**
+     * Creates a question
+     *
+     * @param nIdForm
+     *            the form id
+     * @param nIdQuestion
+     *            the question id
+     * @param strEntryTypeBeanName
+     *            the bean name of the entry type
+     * @param nIterationNumber
+     *            the iteration number
+     * @return the question
+     */
+    private static Question createQuestion( int nIdForm, int nIdQuestion, String strEntryTypeBeanName, int nIterationNumber )
+    {
+        EntryType entryType = new EntryType( );
+        entryType.setBeanName( strEntryTypeBeanName );
+
+        Entry entry = new Entry( );
+        entry.setIdEntry( nIdQuestion );
+        entry.setIdResource( nIdForm );
+        entry.setEntryType( entryType );
+        entry.setFields( new ArrayList<>( ) );
+
+        Question question = new Question( );
+        question.setId( nIdQuestion );
+        question.setCode( CODE_PREFIX + ( nIdQuestion % QUESTIONS_PER_FORM ) );
+        question.setTitle( CODE_PREFIX + nIdQuestion );
+        question.setIdEntry( nIdQuestion );
+        question.setEntry( entry );
+        question.setIterationNumber( nIterationNumber );
+
+        return question;
+    }
+
+    /**
+     * Creates a response
+     *
+     * @param question
+     *            the question
+     * @param nIterationNumber
+     *            the iteration number
+     * @param strValue
+     *            the value
+     * @param file
+     *            the file, or {@code null}
+     * @return the response
+     */
+    private static Response createResponse( Question question, int nIterationNumber, String strValue, File file )
+    {
+        Response response = new Response( );
+        response.setEntry( question.getEntry( ) );
+        response.setIterationNumber( nIterationNumber );
+        response.setResponseValue( strValue );
+        response.setToStringValueResponse( strValue );
+        response.setFile( file );
+
+        return response;
+    }
+
+    /**
+     * Creates the metadata of a file
+     *
+     * @param nIdFile
+     *            the file id
+     * @return the file
+     */
+    private static File createFile( int nIdFile )
+    {
+        File file = new File( );
+        file.setIdFile( nIdFile );
+        file.setTitle( "file_" + nIdFile + ".pdf" );
+        file.setFileKey( String.valueOf( nIdFile ) );
+        file.setOrigin( FILE_ORIGIN );
+
+        return file;
+    }
+}